@@ -1,19 +1,170 @@
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
 import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.Timer;
 
 /**
  * Displays a fractal on it's canvas. Has a runtime adjustable width and height.
  * Pixel size can only be selected at compile time/when programming. Includes an
- * indicator showing where the next potential zoom would be. Is continuously
- * doing all the calculations for which points are part of the fractal or not.
+ * indicator showing where the next potential zoom would be. Each view is
+ * calculated a bit more with every iteration, until it's finished, and the
+ * picture is updated as it goes.
  * 
  * Is extended by FractalViewer and FractalViewer2. This class exists to easily
  * be able to swap between the two.
  * 
+ * Both viewers draw the fractal into a FrameBuffer by writing ARGB values
+ * straight into it, so painting is a single drawImage call no matter how many
+ * pixels there are. The calculating thread calls present() after each
+ * iteration, which publishes the changes at a limited frame rate and only
+ * repaints the parts of the fractal that changed.
+ * 
+ * The colors are kept apart from the calculations, so Alt+P (next palette),
+ * Alt+E (histogram equalization) and Alt+C (cycling the palette) only color
+ * the pixels that are already done again, with recolor(), and never
+ * calculate anything again.
+ * 
  * @author Samuel Lieberman
  *
  */
 public abstract class AbstractFractalViewer extends JPanel {
 	private static final long serialVersionUID = -4521623044448557872L;
+	
+	/**
+	 * milliseconds between each step of palette cycling
+	 */
+	public static final int CYCLE_DELAY = 40;
+	/**
+	 * how far along the palette each step of cycling moves the colors, where
+	 * going through it once is 1
+	 */
+	public static final double CYCLE_STEP = 1/128.0;
+	
+	private FrameBuffer frameBuffer = new FrameBuffer();
+	private Timer cycleTimer;
+	
+	public AbstractFractalViewer() {
+		cycleTimer = new Timer(CYCLE_DELAY, e -> {
+			if (isShowing()) {
+				FractalColors.setCycleOffset(FractalColors.getCycleOffset() + CYCLE_STEP);
+				recolor();
+			}
+		});
+		
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt P"), "palette");
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt E"), "equalize");
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt C"), "cycle");
+		getActionMap().put("palette", new PaletteAction());
+		getActionMap().put("equalize", new EqualizeAction());
+		getActionMap().put("cycle", new CycleAction());
+	}
 
 	public abstract void start(RecursiveFractal fractal);
+	/**
+	 * Stops calculating whatever is being shown, without waiting. Calling
+	 * start() again carries on as usual.
+	 */
+	public abstract void stop();
+	
+	/**
+	 * Sets up the given view of fractal and runs the given number of iterations
+	 * on the calling thread, without starting the background thread or
+	 * repainting. The view is sized to the current size of this component. Used
+	 * for benchmarking.
+	 */
+	abstract void renderFrame(RecursiveFractal fractal, double fracDiameter, Complex fracCenter, int iterations);
+	/**
+	 * Colors every pixel that's being shown again with the current colors in
+	 * FractalColors, without waiting. Only pixels that are already done are
+	 * used, so nothing is calculated again.
+	 */
+	public abstract void recolor();
+	
+	/**
+	 * Chooses whether the palette is cycled, moving every color along it by
+	 * CYCLE_STEP every CYCLE_DELAY milliseconds while this viewer is showing.
+	 */
+	public void setCycling(boolean cycling) {
+		if (cycling) {
+			cycleTimer.start();
+		}else {
+			cycleTimer.stop();
+		}
+	}
+	public boolean isCycling() {
+		return cycleTimer.isRunning();
+	}
+	
+	/**
+	 * Makes sure the image the fractal is drawn into is pixWidth by pixHeight.
+	 * The image is only recreated if its size changes.
+	 * 
+	 * @return the image
+	 */
+	protected FrameBuffer resizeImage(int pixWidth, int pixHeight) {
+		frameBuffer.resize(pixWidth, pixHeight);
+		
+		return frameBuffer;
+	}
+	/**
+	 * @return the image the fractal is drawn into
+	 */
+	protected FrameBuffer getImage() {
+		return frameBuffer;
+	}
+
+	/**
+	 * Publishes the changes to the fractal's image and repaints the areas that
+	 * changed. Without force, nothing happens if the last publish was too
+	 * recent. Must be called between iterations.
+	 */
+	protected void present(int pixelSize, boolean force) {
+		for (Rectangle changed:frameBuffer.publish(force)) {
+			repaint(changed.x*pixelSize, changed.y*pixelSize, changed.width*pixelSize, changed.height*pixelSize);
+		}
+	}
+	
+	/**
+	 * Draws the fractal's image, with each of its pixels pixelSize wide.
+	 */
+	protected void drawImage(Graphics g, int pixelSize) {
+		frameBuffer.draw(g, pixelSize);
+	}
+	
+	private class PaletteAction extends AbstractAction {
+		private static final long serialVersionUID = 6920415787093215521L;
+		
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			Palette[] palettes = Palette.PALETTES;
+			int current = 0;
+			while (current < palettes.length && palettes[current] != FractalColors.getPalette()) {
+				current++;
+			}
+
+			FractalColors.setPalette(palettes[(current + 1)%palettes.length]);
+			recolor();
+		}
+	}
+	private class EqualizeAction extends AbstractAction {
+		private static final long serialVersionUID = -3316880573404620385L;
+		
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			FractalColors.setEqualizing(!FractalColors.isEqualizing());
+			recolor();
+		}
+	}
+	private class CycleAction extends AbstractAction {
+		private static final long serialVersionUID = 2471169840531307798L;
+		
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			setCycling(!isCycling());
+		}
+	}
 }
@@ -0,0 +1,64 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * An immutable complex number with arbitrary precision, for positions that
+ * need more digits than a double has, such as the center of a deep zoom.
+ * Every operation that can produce more digits than its inputs takes a
+ * MathContext to round to.
+ * 
+ * @author Samuel Lieberman
+ */
+public class BigComplex {
+	public static final BigComplex ZERO = new BigComplex(BigDecimal.ZERO, BigDecimal.ZERO);
+	
+	private final BigDecimal re;
+	private final BigDecimal im;
+	
+	public BigComplex(BigDecimal re, BigDecimal im) {
+		this.re = re;
+		this.im = im;
+	}
+	
+	/**
+	 * @return the exact value of c
+	 */
+	public static BigComplex valueOf(Complex c) {
+		return valueOf(c.re(), c.im());
+	}
+	/**
+	 * @return the exact value of re + im*i
+	 */
+	public static BigComplex valueOf(double re, double im) {
+		return new BigComplex(new BigDecimal(re), new BigDecimal(im));
+	}
+	
+	public BigDecimal re() {
+		return re;
+	}
+	public BigDecimal im() {
+		return im;
+	}
+	
+	public BigComplex add(BigComplex c, MathContext mc) {
+		return new BigComplex(re.add(c.re, mc), im.add(c.im, mc));
+	}
+	public BigComplex square(MathContext mc) {
+		BigDecimal sum = re.add(im);
+		BigDecimal difference = re.subtract(im);
+		
+		return new BigComplex(sum.multiply(difference, mc), re.multiply(im, mc).multiply(BigDecimal.valueOf(2)));
+	}
+	
+	/**
+	 * @return this rounded to the nearest doubles
+	 */
+	public Complex toComplex() {
+		return new Complex(re.doubleValue(), im.doubleValue(), ImMath.coordinateSystem.CARTISAN);
+	}
+	
+	@Override
+	public String toString() {
+		return re + " + " + im + "*i";
+	}
+}
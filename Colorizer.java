@@ -0,0 +1,103 @@
+/**
+ * Colors a frame from its escape iterations and escapeR2 alone, so it can be
+ * colored again with another Palette, cycled or histogram equalized without
+ * calculating anything again. The pixels are colored in chunks of CHUNK_SIZE
+ * on different threads by a TileScheduler.
+ * 
+ * The smooth iteration count of every pixel is worked out first. If
+ * FractalColors.isEqualizing(), the escaped pixels are then counted into a
+ * histogram of BINS_PER_ITERATION bins per iteration, and its running total
+ * becomes FractalColors' equalization, which every pixel drawn afterwards is
+ * colored by, until the next frame is colorized.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class Colorizer {
+	/**
+	 * number of pixels colored by each task
+	 */
+	public static final int CHUNK_SIZE = 4096;
+	
+	private TileScheduler scheduler;
+	
+	//the smooth iteration count of each pixel of the last frame
+	private double[] smooth;
+	
+	public Colorizer(TileScheduler scheduler) {
+		this.scheduler = scheduler;
+		smooth = new double[0];
+	}
+	
+	/**
+	 * Writes the color of every pixel into image. Must not be called while
+	 * the frame is being iterated.
+	 * 
+	 * @param escapes   the escape iteration of every pixel, indexed by
+	 *                  y*width + x
+	 * @param escapeR2  the square of the size of every escaped pixel at its
+	 *                  escape iteration, or NaN where it isn't known
+	 * @param aliveArgb the color of pixels that are NOT_ESCAPED
+	 */
+	public void colorize(RecursiveFractal fractal, int[] escapes, float[] escapeR2, FrameBuffer image, int aliveArgb) {
+		int size = escapes.length;
+		if (smooth.length != size) {
+			smooth = new double[size];
+		}
+		double logRadius2 = Math.log(fractal.getEscapeRadius2());
+		double logDegree = fractal.escapesInward() ? Double.NaN : Math.log(fractal.getDegree());
+		int chunks = (size + CHUNK_SIZE - 1)/CHUNK_SIZE;
+		
+		scheduler.run(chunks, chunk -> {
+			int end = Math.min((chunk + 1)*CHUNK_SIZE, size);
+			
+			for (int i = chunk*CHUNK_SIZE; i < end; i++) {
+				smooth[i] = FractalColors.smoothIteration(escapes[i], escapeR2[i], logRadius2, logDegree);
+			}
+		});
+		
+		if (FractalColors.isEqualizing()) {
+			FractalColors.setEqualization(equalize(size));
+		}
+		
+		scheduler.run(chunks, chunk -> {
+			int end = Math.min((chunk + 1)*CHUNK_SIZE, size);
+			
+			for (int i = chunk*CHUNK_SIZE; i < end; i++) {
+				image.set(i, escapes[i] == FractalFrame.NOT_ESCAPED ? aliveArgb : FractalColors.smoothArgbOf(smooth[i]));
+			}
+		});
+	}
+	
+	/**
+	 * Counts the escaped pixels of the first size pixels of smooth into bins.
+	 * 
+	 * @return for each bin, the fraction of the escaped pixels in the bins
+	 *         below it, followed by 1
+	 */
+	private float[] equalize(int size) {
+		double highest = 0;
+		for (int i = 0; i < size; i++) {
+			highest = Math.max(highest, smooth[i]);
+		}
+		
+		int[] counts = new int[(int) (highest*FractalColors.BINS_PER_ITERATION) + 1];
+		int escaped = 0;
+		for (int i = 0; i < size; i++) {
+			if (smooth[i] >= 0) {
+				counts[(int) (smooth[i]*FractalColors.BINS_PER_ITERATION)]++;
+				escaped++;
+			}
+		}
+		
+		float[] equalization = new float[counts.length + 1];
+		long below = 0;
+		for (int bin = 0; bin < counts.length; bin++) {
+			equalization[bin] = escaped == 0 ? 0 : (float) ((double) below/escaped);
+			below += counts[bin];
+		}
+		equalization[counts.length] = 1;
+		
+		return equalization;
+	}
+}
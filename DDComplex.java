@@ -0,0 +1,77 @@
+/**
+ * An immutable complex number with double-double (about 32 digit) real and
+ * imaginary parts, for zooms deeper than a double can resolve but not so deep
+ * that they need a BigComplex. Only the cartesian representation is
+ * supported. Pixels aren't iterated as DDComplex objects, but as hi and lo
+ * parts in double[] buffers with DDMath (see DDFrame).
+ * 
+ * @author Samuel Lieberman
+ */
+public class DDComplex {
+	private final DoubleDouble re;
+	private final DoubleDouble im;
+	
+	public DDComplex(DoubleDouble re, DoubleDouble im) {
+		this.re = re;
+		this.im = im;
+	}
+	public DDComplex(double re, double im) {
+		this(new DoubleDouble(re), new DoubleDouble(im));
+	}
+	
+	/**
+	 * @return the exact value of c
+	 */
+	public static DDComplex valueOf(Complex c) {
+		return new DDComplex(c.re(), c.im());
+	}
+	/**
+	 * @return c rounded to the nearest double-doubles
+	 */
+	public static DDComplex valueOf(BigComplex c) {
+		return new DDComplex(DoubleDouble.valueOf(c.re()), DoubleDouble.valueOf(c.im()));
+	}
+	
+	public DoubleDouble re() {
+		return re;
+	}
+	public DoubleDouble im() {
+		return im;
+	}
+	
+	/**
+	 * @return the square of the magnitude, rounded to a double
+	 */
+	public double r2() {
+		double x = re.doubleValue();
+		double y = im.doubleValue();
+		
+		return x*x + y*y;
+	}
+	
+	/**
+	 * @return this rounded to the nearest doubles
+	 */
+	public Complex toComplex() {
+		return new Complex(re.doubleValue(), im.doubleValue(), ImMath.coordinateSystem.CARTISAN);
+	}
+	
+	@Override
+	public boolean equals(Object arg0) {
+		if (!(arg0 instanceof DDComplex)) {
+			return false;
+		}
+		
+		DDComplex c = (DDComplex) arg0;
+		return re.equals(c.re) && im.equals(c.im);
+	}
+	@Override
+	public int hashCode() {
+		return re.hashCode()*31 + im.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return re + " + " + im + "*i";
+	}
+}
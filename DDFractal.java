@@ -0,0 +1,26 @@
+/**
+ * A PrimitiveFractal that can also be iterated in double-double precision,
+ * for zooms too deep for doubles. Each double-double is split into its hi and
+ * lo parts, which are kept in separate double[] buffers and updated in place
+ * just like PrimitiveFractal's, so iterating a pixel doesn't create any
+ * garbage. DDMath has the operations to do it with. Equivalent to the Complex
+ * methods of RecursiveFractal.
+ * 
+ * Divergence only depends on the rough size of the value, so it's tested with
+ * diverges(double, double, int) on the hi parts.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public interface DDFractal extends PrimitiveFractal {
+	/**
+	 * Writes the starting value for the point initialRe + initialIm*i into
+	 * reHi[i] + reLo[i] and imHi[i] + imLo[i]. Equivalent to start(Complex).
+	 */
+	public void start(double initialReHi, double initialReLo, double initialImHi, double initialImLo, double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i);
+	/**
+	 * Replaces the value at index i with the next value in its orbit.
+	 * Equivalent to step(Complex, Complex).
+	 */
+	public void step(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double initialReHi, double initialReLo, double initialImHi, double initialImLo);
+}
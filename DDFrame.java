@@ -0,0 +1,293 @@
+import java.util.Arrays;
+
+/**
+ * A frame of a DDFractal iterated in double-double precision, for zooms
+ * between the limit of FractalFrame's doubles and the depth where only
+ * perturbation (PerturbationFrame) is precise enough.
+ * 
+ * Just like FractalFrame, the position and value of each pixel are kept in
+ * flat double[] arrays indexed by y*width + x, with the hi and lo parts of
+ * each double-double in separate arrays, and the kernel updates them in place
+ * so iterating doesn't create any garbage. Pixels are split into tiles of
+ * FractalFrame.TILE_SIZE pixels with compacted active lists, so tiles can be
+ * iterated on different threads at the same time.
+ * 
+ * Pixels inside the fractal are caught early the same way as in FractalFrame:
+ * by the kernel's isInterior() test before the first iteration, and by
+ * comparing each value to the one saved at the last power of two iteration
+ * afterwards.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class DDFrame {
+	private static final int TILE_SIZE = FractalFrame.TILE_SIZE;
+	private static final int COMPACT_RATIO = 4;
+	/**
+	 * largest distance between two values of an orbit for them to count as the
+	 * same point, the same as in FractalFrame
+	 */
+	private static final double PERIODICITY_TOLERANCE = 1e-10;
+	private static final double PERIODICITY_SPACING_FRACTION = 1e-3;
+	
+	private int width;
+	private int height;
+	
+	private double[] reHi;
+	private double[] reLo;
+	private double[] imHi;
+	private double[] imLo;
+	private double[] cReHi;
+	private double[] cReLo;
+	private double[] cImHi;
+	private double[] cImLo;
+	private int[] escapeIter;
+	private float[] escapeR2;
+	private long[] alive;
+	private FrameBuffer image;
+	
+	private DDFractal kernel;
+	
+	//the value of each pixel at the last power of two iteration
+	private double[] savedReHi;
+	private double[] savedReLo;
+	private double[] savedImHi;
+	private double[] savedImLo;
+	private double periodicityTolerance2;
+	
+	//the alive pixels of tile t are active[t*TILE_SIZE] up to active[t*TILE_SIZE + activeCount[t]]
+	private int[] active;
+	private int[] activeCount;
+	private int[] escapedCount;
+	
+	public DDFrame() {
+		resize(0, 0);
+	}
+	
+	/**
+	 * Changes the number of pixels in this frame. Does nothing if the size is
+	 * unchanged, so the existing arrays get reused.
+	 * 
+	 * @return true if the arrays had to be reallocated
+	 */
+	public boolean resize(int width, int height) {
+		if (reHi != null && width == this.width && height == this.height) {
+			return false;
+		}
+		
+		this.width = width;
+		this.height = height;
+		
+		int size = width*height;
+		reHi = new double[size];
+		reLo = new double[size];
+		imHi = new double[size];
+		imLo = new double[size];
+		cReHi = new double[size];
+		cReLo = new double[size];
+		cImHi = new double[size];
+		cImLo = new double[size];
+		escapeIter = new int[size];
+		escapeR2 = new float[size];
+		alive = new long[(size + 63) >>> 6];
+		savedReHi = new double[size];
+		savedReLo = new double[size];
+		savedImHi = new double[size];
+		savedImLo = new double[size];
+		active = new int[size];
+		activeCount = new int[getTileCount()];
+		escapedCount = new int[getTileCount()];
+		
+		return true;
+	}
+	
+	/**
+	 * Sets the image the color of each pixel is written into.
+	 * 
+	 * @param image an image the same size as this frame, or null
+	 */
+	public void setImage(FrameBuffer image) {
+		this.image = image;
+	}
+	
+	/**
+	 * Resets every pixel to the start of its orbit. Pixel (x, y) is placed at
+	 * center + topLeftRe + x*spacing + (topLeftIm + y*spacing)*i. Pixels the
+	 * kernel already knows are inside the fractal are marked INTERIOR right
+	 * away.
+	 */
+	public void init(DDFractal kernel, DDComplex center, double topLeftRe, double topLeftIm, double spacing) {
+		this.kernel = kernel;
+		double tolerance = Math.min(PERIODICITY_TOLERANCE, spacing*PERIODICITY_SPACING_FRACTION);
+		periodicityTolerance2 = tolerance*tolerance;
+		
+		DoubleDouble centerRe = center.re();
+		DoubleDouble centerIm = center.im();
+		
+		Arrays.fill(alive, 0);
+		for (int y = 0; y < height; y++) {
+			double offsetIm = topLeftIm + y*spacing;
+			int row = y*width;
+			
+			for (int x = 0; x < width; x++) {
+				int i = row + x;
+				
+				DDMath.add(centerRe.hi(), centerRe.lo(), topLeftRe + x*spacing, 0, cReHi, cReLo, i);
+				DDMath.add(centerIm.hi(), centerIm.lo(), offsetIm, 0, cImHi, cImLo, i);
+				kernel.start(cReHi[i], cReLo[i], cImHi[i], cImLo[i], reHi, reLo, imHi, imLo, i);
+				savedReHi[i] = reHi[i];
+				savedReLo[i] = reLo[i];
+				savedImHi[i] = imHi[i];
+				savedImLo[i] = imLo[i];
+				
+				if (kernel.isInterior(cReHi[i], cImHi[i])) {
+					escapeIter[i] = FractalFrame.INTERIOR;
+				}else {
+					escapeIter[i] = FractalFrame.NOT_ESCAPED;
+					alive[i >>> 6] |= 1L << i;
+				}
+			}
+		}
+		
+		if (image != null) {
+			image.fill(FractalColors.argbOf(FractalFrame.NOT_ESCAPED));
+		}
+		
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			int start = tile*TILE_SIZE;
+			int end = Math.min(start + TILE_SIZE, width*height);
+			int count = start;
+			
+			for (int i = start; i < end; i++) {
+				if (isAlive(i)) {
+					active[count] = i;
+					count++;
+				}
+			}
+			activeCount[tile] = count - start;
+			escapedCount[tile] = 0;
+		}
+	}
+	
+	/**
+	 * Steps every pixel that's still alive once. Pixels that diverge are
+	 * marked with the given iteration and stop being iterated, and so are
+	 * pixels whose orbit turns out to be periodic.
+	 */
+	public void iterate(int iteration) {
+		for (int tile = 0; tile < getTileCount(); tile++) {
+			iterateTile(iteration, tile);
+		}
+	}
+	/**
+	 * Same as iterate(), but only for the pixels in the given tile. Different
+	 * tiles can safely be iterated at the same time.
+	 */
+	public void iterateTile(int iteration, int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int escaped = escapedCount[tile];
+		boolean saveOrbit = (iteration & (iteration - 1)) == 0;
+		
+		for (int j = start; j < end; j++) {
+			int i = active[j];
+			
+			if (isAlive(i)) {
+				kernel.step(reHi, reLo, imHi, imLo, i, cReHi[i], cReLo[i], cImHi[i], cImLo[i]);
+				
+				if (kernel.diverges(reHi[i], imHi[i], iteration)) {
+					escapeIter[i] = iteration;
+					escapeR2[i] = (float) (reHi[i]*reHi[i] + imHi[i]*imHi[i]);
+					alive[i >>> 6] &= ~(1L << i);
+					escaped++;
+					
+					if (image != null) {
+						image.set(i, FractalColors.argbOf(kernel, iteration, escapeR2[i]));
+					}
+				}else if (saveOrbit) {
+					savedReHi[i] = reHi[i];
+					savedReLo[i] = reLo[i];
+					savedImHi[i] = imHi[i];
+					savedImLo[i] = imLo[i];
+				}else {
+					//the hi parts are close enough that subtracting them is exact
+					double dRe = (reHi[i] - savedReHi[i]) + (reLo[i] - savedReLo[i]);
+					double dIm = (imHi[i] - savedImHi[i]) + (imLo[i] - savedImLo[i]);
+					
+					if (dRe*dRe + dIm*dIm <= periodicityTolerance2) {
+						escapeIter[i] = FractalFrame.INTERIOR;
+						alive[i >>> 6] &= ~(1L << i);
+						escaped++;
+					}
+				}
+			}
+		}
+		
+		escapedCount[tile] = escaped;
+		if (escaped*COMPACT_RATIO > activeCount[tile]) {
+			compactTile(tile);
+		}
+	}
+	/**
+	 * Removes every pixel that isn't alive anymore from the tile's active list,
+	 * keeping the rest in order.
+	 */
+	private void compactTile(int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int kept = start;
+		
+		for (int j = start; j < end; j++) {
+			int i = active[j];
+			
+			if (isAlive(i)) {
+				active[kept] = i;
+				kept++;
+			}
+		}
+		
+		activeCount[tile] = kept - start;
+		escapedCount[tile] = 0;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getTileCount() {
+		return (width*height + TILE_SIZE - 1)/TILE_SIZE;
+	}
+	
+	/**
+	 * @return the number of pixels that are still being iterated
+	 */
+	public int getAliveCount() {
+		int count = 0;
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			count += activeCount[tile] - escapedCount[tile];
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return the iteration each pixel escaped at, or NOT_ESCAPED or INTERIOR,
+	 *         indexed by y*width + x
+	 */
+	public int[] getEscapeIterations() {
+		return escapeIter;
+	}
+	/**
+	 * @return the square of the size of each escaped pixel at the iteration
+	 *         it escaped at, indexed by y*width + x
+	 */
+	public float[] getEscapeR2() {
+		return escapeR2;
+	}
+	
+	public boolean isAlive(int i) {
+		return (alive[i >>> 6] & (1L << i)) != 0;
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * Performs operations on double-double numbers (see DoubleDouble) that are
+ * split into their hi and lo parts, the way DDFrame keeps them in double[]
+ * buffers. Each operation reads all of its arguments before writing its result
+ * into hi[i] and lo[i], so a result can go straight back into the buffers one
+ * of its arguments came from, and nothing is allocated. The arithmetic is the
+ * same as DoubleDouble's.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class DDMath {
+	//pow treats anything with a smaller magnitude than this as zero, like ImMath
+	private static final double ZERO_RADIUS = 0.000000001;
+	
+	//cannot be instantiated
+	private DDMath() {}
+	
+	public static void add(double aHi, double aLo, double bHi, double bLo, double[] hi, double[] lo, int i) {
+		double s = aHi + bHi;
+		double sErr = twoSumError(aHi, bHi, s);
+		double t = aLo + bLo;
+		double tErr = twoSumError(aLo, bLo, t);
+		
+		sErr += t;
+		double s2 = s + sErr;
+		sErr = sErr - (s2 - s);
+		sErr += tErr;
+		
+		double sum = s2 + sErr;
+		hi[i] = sum;
+		lo[i] = sErr - (sum - s2);
+	}
+	
+	public static void multiply(double aHi, double aLo, double bHi, double bLo, double[] hi, double[] lo, int i) {
+		double p = aHi*bHi;
+		double pErr = Math.fma(aHi, bHi, -p) + (aHi*bLo + aLo*bHi);
+		
+		double product = p + pErr;
+		hi[i] = product;
+		lo[i] = pErr - (product - p);
+	}
+	public static void square(double aHi, double aLo, double[] hi, double[] lo, int i) {
+		double p = aHi*aHi;
+		double pErr = Math.fma(aHi, aHi, -p) + 2*aHi*aLo;
+		
+		double product = p + pErr;
+		hi[i] = product;
+		lo[i] = pErr - (product - p);
+	}
+	/**
+	 * Long division: one double quotient, then a correction for what it
+	 * missed.
+	 */
+	public static void divide(double aHi, double aLo, double bHi, double bLo, double[] hi, double[] lo, int i) {
+		double q = aHi/bHi;
+		
+		//b*q, which is close enough to a that subtracting the parts is exact
+		double p = bHi*q;
+		double pErr = Math.fma(bHi, q, -p) + bLo*q;
+		double productHi = p + pErr;
+		double productLo = pErr - (productHi - p);
+		double correction = ((aHi - productHi) + (aLo - productLo))/bHi;
+		
+		double quotient = q + correction;
+		hi[i] = quotient;
+		lo[i] = correction - (quotient - q);
+	}
+	
+	/**
+	 * Replaces z = re + im*i, stored at index i, with z^2 + a.
+	 */
+	public static void squareAdd(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double aReHi, double aReLo, double aImHi, double aImLo) {
+		double xHi = reHi[i];
+		double xLo = reLo[i];
+		double yHi = imHi[i];
+		double yLo = imLo[i];
+		
+		square(xHi, xLo, reHi, reLo, i);
+		square(yHi, yLo, imHi, imLo, i);
+		add(reHi[i], reLo[i], -imHi[i], -imLo[i], reHi, reLo, i);
+		add(reHi[i], reLo[i], aReHi, aReLo, reHi, reLo, i);
+		
+		//doubling is exact
+		multiply(xHi, xLo, 2*yHi, 2*yLo, imHi, imLo, i);
+		add(imHi[i], imLo[i], aImHi, aImLo, imHi, imLo, i);
+	}
+	/**
+	 * Replaces z = re + im*i, stored at index i, with z^-2 + a. Like
+	 * ImMath.pow, z^-2 is taken to be 0 when z is smaller than ZERO_RADIUS.
+	 */
+	public static void inverseSquareAdd(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double aReHi, double aReLo, double aImHi, double aImLo) {
+		double xHi = reHi[i];
+		double xLo = reLo[i];
+		double yHi = imHi[i];
+		double yLo = imLo[i];
+		
+		if (xHi*xHi + yHi*yHi < ZERO_RADIUS*ZERO_RADIUS) {
+			reHi[i] = aReHi;
+			reLo[i] = aReLo;
+			imHi[i] = aImHi;
+			imLo[i] = aImLo;
+			return;
+		}
+		
+		square(xHi, xLo, reHi, reLo, i);
+		square(yHi, yLo, imHi, imLo, i);
+		double x2Hi = reHi[i];
+		double x2Lo = reLo[i];
+		double y2Hi = imHi[i];
+		double y2Lo = imLo[i];
+		
+		//z^-2 = conj(z)^2/|z|^4
+		add(x2Hi, x2Lo, y2Hi, y2Lo, reHi, reLo, i);
+		square(reHi[i], reLo[i], reHi, reLo, i);
+		double r4Hi = reHi[i];
+		double r4Lo = reLo[i];
+		
+		add(x2Hi, x2Lo, -y2Hi, -y2Lo, reHi, reLo, i);
+		divide(reHi[i], reLo[i], r4Hi, r4Lo, reHi, reLo, i);
+		add(reHi[i], reLo[i], aReHi, aReLo, reHi, reLo, i);
+		
+		multiply(xHi, xLo, -2*yHi, -2*yLo, imHi, imLo, i);
+		divide(imHi[i], imLo[i], r4Hi, r4Lo, imHi, imLo, i);
+		add(imHi[i], imLo[i], aImHi, aImLo, imHi, imLo, i);
+	}
+	
+	/**
+	 * @return the rounding error of s = a + b, so a + b == s + error exactly
+	 */
+	private static double twoSumError(double a, double b, double s) {
+		double bVirtual = s - a;
+		return (a - (s - bVirtual)) + (b - bVirtual);
+	}
+}
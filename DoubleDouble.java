@@ -0,0 +1,148 @@
+import java.math.BigDecimal;
+
+/**
+ * An immutable real number stored as the unevaluated sum of two doubles,
+ * hi + lo, with |lo| at most half an ulp of hi. That gives about 106 bits
+ * (32 digits) of precision, twice as much as a double, while every operation
+ * is still just a handful of double operations instead of the arbitrary
+ * precision arithmetic of BigDecimal.
+ * 
+ * The operations are the usual error-free transformations: the rounding
+ * error of each double sum or product is recovered exactly (with twoSum and
+ * Math.fma) and carried in lo.
+ * 
+ * @author Samuel Lieberman
+ */
+public class DoubleDouble {
+	public static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+	public static final DoubleDouble ONE = new DoubleDouble(1, 0);
+	
+	private final double hi;
+	private final double lo;
+	
+	/**
+	 * @param hi the double nearest to the number
+	 * @param lo what's left over
+	 */
+	public DoubleDouble(double hi, double lo) {
+		this.hi = hi;
+		this.lo = lo;
+	}
+	public DoubleDouble(double x) {
+		this(x, 0);
+	}
+	
+	/**
+	 * @return x rounded to the nearest double-double
+	 */
+	public static DoubleDouble valueOf(BigDecimal x) {
+		double hi = x.doubleValue();
+		if (Double.isInfinite(hi)) {
+			return new DoubleDouble(hi, 0);
+		}
+		
+		return new DoubleDouble(hi, x.subtract(new BigDecimal(hi)).doubleValue());
+	}
+	
+	public double hi() {
+		return hi;
+	}
+	public double lo() {
+		return lo;
+	}
+	public double doubleValue() {
+		return hi + lo;
+	}
+	public BigDecimal toBigDecimal() {
+		return new BigDecimal(hi).add(new BigDecimal(lo));
+	}
+	
+	public DoubleDouble add(DoubleDouble x) {
+		double s = hi + x.hi;
+		double sErr = twoSumError(hi, x.hi, s);
+		double t = lo + x.lo;
+		double tErr = twoSumError(lo, x.lo, t);
+		
+		sErr += t;
+		double s2 = s + sErr;
+		sErr = sErr - (s2 - s);
+		sErr += tErr;
+		
+		double sum = s2 + sErr;
+		return new DoubleDouble(sum, sErr - (sum - s2));
+	}
+	public DoubleDouble add(double x) {
+		double s = hi + x;
+		double sErr = twoSumError(hi, x, s) + lo;
+		
+		double sum = s + sErr;
+		return new DoubleDouble(sum, sErr - (sum - s));
+	}
+	public DoubleDouble negate() {
+		return new DoubleDouble(-hi, -lo);
+	}
+	public DoubleDouble subtract(DoubleDouble x) {
+		return add(x.negate());
+	}
+	
+	public DoubleDouble multiply(DoubleDouble x) {
+		double p = hi*x.hi;
+		double pErr = Math.fma(hi, x.hi, -p) + (hi*x.lo + lo*x.hi);
+		
+		double product = p + pErr;
+		return new DoubleDouble(product, pErr - (product - p));
+	}
+	public DoubleDouble multiply(double x) {
+		double p = hi*x;
+		double pErr = Math.fma(hi, x, -p) + lo*x;
+		
+		double product = p + pErr;
+		return new DoubleDouble(product, pErr - (product - p));
+	}
+	public DoubleDouble square() {
+		double p = hi*hi;
+		double pErr = Math.fma(hi, hi, -p) + 2*hi*lo;
+		
+		double product = p + pErr;
+		return new DoubleDouble(product, pErr - (product - p));
+	}
+	/**
+	 * Long division: one double quotient, then a correction for what it
+	 * missed.
+	 */
+	public DoubleDouble divide(DoubleDouble x) {
+		double q = hi/x.hi;
+		DoubleDouble remainder = subtract(x.multiply(q));
+		double correction = remainder.hi/x.hi;
+		
+		double quotient = q + correction;
+		return new DoubleDouble(quotient, correction - (quotient - q));
+	}
+	
+	/**
+	 * @return the rounding error of s = a + b, so a + b == s + error exactly
+	 */
+	private static double twoSumError(double a, double b, double s) {
+		double bVirtual = s - a;
+		return (a - (s - bVirtual)) + (b - bVirtual);
+	}
+	
+	@Override
+	public boolean equals(Object arg0) {
+		if (!(arg0 instanceof DoubleDouble)) {
+			return false;
+		}
+		
+		DoubleDouble x = (DoubleDouble) arg0;
+		return hi == x.hi && lo == x.lo;
+	}
+	@Override
+	public int hashCode() {
+		return Double.hashCode(hi)*31 + Double.hashCode(lo);
+	}
+	
+	@Override
+	public String toString() {
+		return toBigDecimal().round(new java.math.MathContext(32)).toString();
+	}
+}
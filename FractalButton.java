@@ -15,12 +15,10 @@ public class FractalButton extends JButton {
 	
 	private static RecursiveFractal currentFractal;
 	private RecursiveFractal fractal;
-	private AbstractFractalViewer viewer;
 	private FractalGUI parent;
 	
-	public FractalButton(RecursiveFractal fractal, AbstractFractalViewer viewer, FractalGUI parent) {
+	public FractalButton(RecursiveFractal fractal, FractalGUI parent) {
 		this.fractal = fractal;
-		this.viewer = viewer;
 		this.parent = parent;
 		
 		setText(fractal.getName());
@@ -34,7 +32,7 @@ public class FractalButton extends JButton {
 	public void select() {
 		currentFractal = fractal;
 		parent.updateButtons();
-		viewer.start(fractal);
+		parent.showFractal(fractal);
 	}
 	
 	/**
@@ -54,7 +52,7 @@ public class FractalButton extends JButton {
 	 * @return the JPanel displaying the fractal
 	 */
 	public AbstractFractalViewer getViewer() {
-		return viewer;
+		return parent.getViewerFor(fractal);
 	}
 	
 	public class ClickListener implements ActionListener {
@@ -0,0 +1,187 @@
+import java.awt.Color;
+
+/**
+ * The colors used to draw fractals. Shared by both viewers and the headless
+ * renderer so they all draw a fractal the same way.
+ * 
+ * Escaped pixels are colored from the current Palette, by their smooth
+ * iteration count (see smoothIteration()) when their size at the iteration
+ * they escaped is known, so the colors move through the palette continuously
+ * instead of in bands. The palette, how far it has been cycled and whether
+ * it's histogram equalized can all be changed at any time, from any thread.
+ * Pixels that have already been drawn keep their colors until they're colored
+ * again, which a Colorizer does for a whole frame from its escape iterations
+ * and escapeR2 alone.
+ * 
+ * When equalizing, the smooth iteration count of a pixel is replaced by the
+ * fraction of the escaped pixels of the last frame the Colorizer went through
+ * that escaped before it, so each part of the palette covers about as many
+ * pixels as every other however the iterations are spread out.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class FractalColors {
+	public static final Color CONVERGE_COLOR = new Color(0, 0, 0);
+	//public static final Color ERROR_COLOR = new Color(255, 0, 0);
+	/**
+	 * the number of parts each iteration is split into for histogram
+	 * equalization
+	 */
+	public static final int BINS_PER_ITERATION = 8;
+	
+	private static final int CONVERGE_ARGB = CONVERGE_COLOR.getRGB();
+	//how much of the palette equalized colors go through, stopping just short of wrapping back around
+	private static final double EQUALIZED_CYCLES = 1 - 1.0/Palette.GRADIENT_SIZE;
+			
+	private static volatile Palette palette = Palette.CLASSIC;
+	//how far the palette has been cycled, where going through it once is 1
+	private static volatile double cycleOffset = 0;
+	private static volatile boolean equalizing = false;
+	//for each bin of smooth iterations, the fraction of escaped pixels below it
+	private static volatile float[] equalization = null;
+	
+	//cannot be instantiated
+	private FractalColors() {}
+	
+	/**
+	 * Allocates a new Color for every escaped pixel, so argbOf() should be
+	 * used for drawing instead.
+	 * 
+	 * @param escapeIteration the iteration a pixel escaped at, or
+	 *                        FractalFrame.NOT_ESCAPED or FractalFrame.INTERIOR
+	 * @return the color of the pixel
+	 */
+	public static Color colorOf(int escapeIteration) {
+		if (escapeIteration < 0) {
+			return CONVERGE_COLOR;
+		}
+		
+		return new Color(argbOf(escapeIteration));
+	}
+	/**
+	 * Same as colorOf(), but as an ARGB int. Used for pixels whose size at
+	 * the iteration they escaped isn't known.
+	 */
+	public static int argbOf(int escapeIteration) {
+		return smoothArgbOf(escapeIteration);
+	}
+	/**
+	 * @param escapeR2 the square of the size of the pixel's value at the
+	 *                 iteration it escaped at, or NaN if it isn't known
+	 * @return the color of the pixel, by its smooth iteration count
+	 */
+	public static int argbOf(RecursiveFractal fractal, int escapeIteration, double escapeR2) {
+		return smoothArgbOf(smoothIteration(fractal, escapeIteration, escapeR2));
+	}
+	/**
+	 * @param smoothIteration an iteration count from smoothIteration(), or
+	 *                        anything negative for a pixel that didn't escape
+	 * @return the color of the pixel
+	 */
+	public static int smoothArgbOf(double smoothIteration) {
+		if (smoothIteration < 0) {
+			return CONVERGE_ARGB;
+		}
+		
+		Palette palette = FractalColors.palette;
+		float[] equalization = equalizing ? FractalColors.equalization : null;
+		double position = equalization == null ? smoothIteration*palette.getCyclesPerIteration() : rankOf(equalization, smoothIteration)*EQUALIZED_CYCLES;
+		
+		return palette.argbAt(position + cycleOffset);
+	}
+	
+	/**
+	 * Works out the normalized iteration count of an escaped pixel, which goes
+	 * up continuously between one escape iteration and the next. An orbit that
+	 * has just escaped is somewhere between the escape radius R and about
+	 * R^degree in size, and log_degree(ln|z|/ln R) says how far along it got,
+	 * so the count is escapeIteration + 1 - log_degree(ln|z|^2/ln R^2). That
+	 * only holds when R is a lot bigger than anything the step adds, which is
+	 * why the Mandelbrot Set and Julia sets escape at 256 instead of 2.
+	 * 
+	 * Fractals that escape inward, or whose escape radius or degree is 1 or
+	 * less, don't grow that way, so they aren't smoothed.
+	 * 
+	 * @param escapeR2 the square of the size of the pixel's value at the
+	 *                 iteration it escaped at, or NaN if it isn't known
+	 * @return escapeIteration plus a fraction from 0 up to (but not including)
+	 *         1, or escapeIteration itself if it can't be smoothed
+	 */
+	public static double smoothIteration(RecursiveFractal fractal, int escapeIteration, double escapeR2) {
+		return smoothIteration(escapeIteration, escapeR2, Math.log(fractal.getEscapeRadius2()), fractal.escapesInward() ? Double.NaN : Math.log(fractal.getDegree()));
+	}
+	/**
+	 * Same as smoothIteration(), with the logs of the fractal's squared escape
+	 * radius and degree already worked out, for coloring many pixels at once.
+	 * logDegree is NaN for fractals that escape inward.
+	 */
+	static double smoothIteration(int escapeIteration, double escapeR2, double logRadius2, double logDegree) {
+		if (escapeIteration < 0 || Double.isNaN(escapeR2) || !(logRadius2 > 0) || !(logDegree > 0)) {
+			return escapeIteration;
+		}
+		
+		double fraction = 1 - Math.log(Math.log(escapeR2)/logRadius2)/logDegree;
+		if (!(fraction > 0)) {
+			return escapeIteration;
+		}
+		
+		return escapeIteration + Math.min(fraction, Math.nextDown(1.0));
+	}
+	
+	/**
+	 * Switches the palette escaped pixels are colored from.
+	 */
+	public static void setPalette(Palette palette) {
+		FractalColors.palette = palette;
+	}
+	public static Palette getPalette() {
+		return palette;
+	}
+	/**
+	 * Shifts every color along the palette, which animates it when it's
+	 * changed a little at a time.
+	 * 
+	 * @param cycleOffset how far along, where going through the palette once
+	 *                    is 1
+	 */
+	public static void setCycleOffset(double cycleOffset) {
+		FractalColors.cycleOffset = cycleOffset - Math.floor(cycleOffset);
+	}
+	public static double getCycleOffset() {
+		return cycleOffset;
+	}
+	/**
+	 * Chooses whether the palette is histogram equalized. Until a Colorizer
+	 * has gone through a frame, there's nothing to equalize by, so pixels are
+	 * colored as if it wasn't.
+	 */
+	public static void setEqualizing(boolean equalizing) {
+		FractalColors.equalizing = equalizing;
+	}
+	public static boolean isEqualizing() {
+		return equalizing;
+	}
+	/**
+	 * @param equalization for each bin of BINS_PER_ITERATION smooth
+	 *                     iterations, the fraction of escaped pixels in the
+	 *                     bins below it, followed by 1
+	 */
+	static void setEqualization(float[] equalization) {
+		FractalColors.equalization = equalization;
+	}
+		
+	/**
+	 * @return the fraction of escaped pixels that escaped before
+	 *         smoothIteration, from 0 to 1, interpolated within its bin
+	 */
+	private static double rankOf(float[] equalization, double smoothIteration) {
+		double bin = smoothIteration*BINS_PER_ITERATION;
+		if (bin >= equalization.length - 1) {
+			return 1;
+		}
+		
+		int below = (int) bin;
+		return equalization[below] + (equalization[below + 1] - equalization[below])*(bin - below);
+	}
+}
@@ -1,24 +1,81 @@
+import java.io.File;
+import java.io.IOException;
 
 /**
- * The driver class for this program. Starts up the GUI. Takes no command line
- * arguments.
+ * The driver class for this program. Starts up the GUI when run without any
+ * command line arguments, or renders a single image without a display when run
+ * with --headless.
  * 
  * @author Samuel Lieberman
  *
  */
 public class FractalDriver {
+	private static final String HEADLESS = "--headless";
+	private static final int HEADLESS_ARGS = 8;
+	
 	public static void main(String[] args) {
-		if (args.length != 0) {
-			System.out.println("No command line arguments are currently supported.");
+		if (args.length == 0) {
+			new FractalGUI();
+		}else if (args[0].equals(HEADLESS) && args.length == HEADLESS_ARGS) {
+			renderHeadless(args);
+		}else {
+			System.out.println("Unsupported command line arguments.");
 			printUsage();
 			
 			System.exit(1);
 		}
+	}
+	
+	private static void renderHeadless(String[] args) {
+		System.setProperty("java.awt.headless", "true");
 		
-		new FractalGUI();
+		RecursiveFractal fractal = FractalGUI.findFractal(args[1]);
+		if (fractal == null) {
+			System.out.println("Unknown fractal \"" + args[1] + "\"");
+			printUsage();
+			
+			System.exit(1);
+		}
+		
+		try {
+			Complex center = new Complex(Double.parseDouble(args[2]), Double.parseDouble(args[3]), ImMath.coordinateSystem.CARTISAN);
+			double diameter = Double.parseDouble(args[4]);
+			
+			String[] size = args[5].toLowerCase().split("x", -1);
+			if (size.length > 2) {
+				throw new NumberFormatException("For input string: \"" + args[5] + "\"");
+			}
+			int width = Integer.parseInt(size[0]);
+			int height = size.length > 1 ? Integer.parseInt(size[1]) : width;
+			if (width <= 0 || height <= 0) {
+				System.out.println("Invalid size: " + args[5]);
+				printUsage();
+				
+				System.exit(1);
+			}
+			
+			int maxIterations = Integer.parseInt(args[6]);
+			
+			HeadlessRenderer.renderToFile(fractal, center, diameter, width, height, maxIterations, new File(args[7]));
+		}catch (NumberFormatException e) {
+			System.out.println("Invalid number: " + e.getMessage());
+			printUsage();
+			
+			System.exit(1);
+		}catch (IOException e) {
+			System.out.println("Could not write \"" + args[7] + "\": " + e.getMessage());
+			
+			System.exit(1);
+		}
 	}
 	
 	private static void printUsage() {
 		System.out.println("Usage: java FractalDriver");
+		System.out.println("       java FractalDriver " + HEADLESS + " <fractal> <center re> <center im> <diameter> <width>[x<height>] <max iterations> <output.png>");
+		System.out.println();
+		System.out.println("Fractals:");
+		for (RecursiveFractal fractal:FractalGUI.getFractals()) {
+			System.out.println("  \"" + fractal.getName() + "\" (" + fractal.getClass().getName() + ")");
+		}
 	}
 }
@@ -0,0 +1,746 @@
+import java.util.Arrays;
+
+/**
+ * Holds the state of every pixel of a frame as flat primitive arrays, indexed
+ * by y*width + x, so iterating a frame walks memory sequentially instead of
+ * chasing pointers through Complex objects. The arrays are reused as long as
+ * the size of the frame doesn't change.
+ * 
+ * For each pixel this stores its position on the complex plane (cRe, cIm), its
+ * current value (re, im), whether it's still being iterated (the alive bitset),
+ * the iteration it escaped at and the square of its size at that iteration
+ * (escapeR2), which smooths its color. If the frame has been given an image,
+ * the color of each pixel is also written into it as soon as the pixel is
+ * done.
+ * 
+ * The pixels are split into tiles of TILE_SIZE consecutive pixels which can be
+ * iterated on different threads at the same time. TILE_SIZE is a multiple of
+ * 64 so no two tiles ever write to the same word of the alive bitset.
+ * 
+ * Each tile also keeps a compacted list of the pixels in it that are still
+ * alive, so the cost of an iteration depends on how many pixels are still
+ * being iterated rather than on the size of the frame. Escaped pixels are
+ * dropped from the list once enough of them have built up.
+ * 
+ * Pixels that are inside the fractal never escape, so they're caught early
+ * instead: by the kernel's isInterior() test before the first iteration, and
+ * by Brent-style cycle checking afterwards. The value of each pixel is saved
+ * at every power of two iteration and compared to its value at every
+ * iteration after that. Once a pixel comes back to within a small tolerance of
+ * its saved value its orbit is periodic, so it's marked INTERIOR and stops
+ * being iterated.
+ * 
+ * A frame can also be placed on a lattice, where every pixel sits at a whole
+ * multiple of the spacing between pixels. Zooming by a power of two or moving
+ * by whole pixels then puts many of the new pixels at exactly the same points
+ * as pixels of the previous frame, so reproject() can copy the ones that were
+ * already done instead of calculating them again.
+ * 
+ * A frame on the lattice can also be saved as a Snapshot and restored later to
+ * carry on iterating exactly where it left off.
+ * 
+ * QuadraticFractals are stepped several pixels at a time by
+ * LaneStepper.VECTOR when it's available, unless setVectorized(false) has been
+ * called. Either way the results are exactly the same.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class FractalFrame {
+	/**
+	 * escape iteration of a pixel that hasn't escaped (yet)
+	 */
+	public static final int NOT_ESCAPED = -1;
+	/**
+	 * escape iteration of a pixel found to be inside the fractal
+	 */
+	public static final int INTERIOR = -2;
+	/**
+	 * number of pixels in each tile
+	 */
+	public static final int TILE_SIZE = 1024;
+	private static final int TILE_WORDS = TILE_SIZE/64;
+	/**
+	 * a tile's active list is compacted once more than 1/COMPACT_RATIO of it
+	 * has escaped
+	 */
+	private static final int COMPACT_RATIO = 4;
+	/**
+	 * largest distance between two values of an orbit for them to count as the
+	 * same point. It's also never more than PERIODICITY_SPACING_FRACTION of the
+	 * distance between two pixels, so it shrinks when zooming in.
+	 */
+	private static final double PERIODICITY_TOLERANCE = 1e-10;
+	private static final double PERIODICITY_SPACING_FRACTION = 1e-3;
+	
+	private int width;
+	private int height;
+	
+	private double[] re;
+	private double[] im;
+	private double[] cRe;
+	private double[] cIm;
+	private int[] escapeIter;
+	//NaN for escaped pixels that were filled in without it
+	private float[] escapeR2;
+	private long[] alive;
+	private FrameBuffer image;
+	//the kernel the pixels were started with, which colors them
+	private PrimitiveFractal kernel;
+	
+	//where the frame was placed by reproject(), if it was
+	private boolean onLattice;
+	private PrimitiveFractal latticeKernel;
+	private long originX;
+	private long originY;
+	private double spacing;
+	
+	//the value of each pixel at the last power of two iteration
+	private double[] savedRe;
+	private double[] savedIm;
+	private double periodicityTolerance2;
+	
+	//the alive pixels of tile t are active[t*TILE_SIZE] up to active[t*TILE_SIZE + activeCount[t]]
+	private int[] active;
+	private int[] activeCount;
+	private int[] escapedCount;
+	
+	//steps QuadraticFractals several pixels at a time, or null to step them one at a time
+	private LaneStepper stepper;
+	
+	public FractalFrame() {
+		stepper = LaneStepper.VECTOR;
+		resize(0, 0);
+	}
+	
+	/**
+	 * Changes the number of pixels in this frame. Does nothing if the size is
+	 * unchanged, so the existing arrays get reused.
+	 * 
+	 * @return true if the arrays had to be reallocated
+	 */
+	public boolean resize(int width, int height) {
+		if (re != null && width == this.width && height == this.height) {
+			return false;
+		}
+		
+		this.width = width;
+		this.height = height;
+		
+		int size = width*height;
+		re = new double[size];
+		im = new double[size];
+		cRe = new double[size];
+		cIm = new double[size];
+		escapeIter = new int[size];
+		escapeR2 = new float[size];
+		alive = new long[(size + 63) >>> 6];
+		savedRe = new double[size];
+		savedIm = new double[size];
+		active = new int[size];
+		activeCount = new int[getTileCount()];
+		escapedCount = new int[getTileCount()];
+		
+		return true;
+	}
+	
+	/**
+	 * Chooses whether QuadraticFractals are stepped several pixels at a time.
+	 * Shouldn't be called while tiles are being iterated.
+	 * 
+	 * @return whether they will be, which is false if LaneStepper.VECTOR isn't
+	 *         available
+	 */
+	public boolean setVectorized(boolean vectorized) {
+		stepper = vectorized ? LaneStepper.VECTOR : null;
+		
+		return stepper != null;
+	}
+	public boolean isVectorized() {
+		return stepper != null;
+	}
+	
+	/**
+	 * Sets the image the color of each pixel is written into.
+	 * 
+	 * @param image an image the same size as this frame, or null
+	 */
+	public void setImage(FrameBuffer image) {
+		this.image = image;
+	}
+	
+	/**
+	 * @return the image the color of each pixel is written into, or null
+	 */
+	public FrameBuffer getImage() {
+		return image;
+	}
+	
+	/**
+	 * Resets every pixel to the start of its orbit. Pixel (x, y) is placed at
+	 * topLeftRe + x*spacing + (topLeftIm + y*spacing)*i. Pixels the kernel
+	 * already knows are inside the fractal are marked INTERIOR right away.
+	 */
+	public void init(PrimitiveFractal kernel, double topLeftRe, double topLeftIm, double spacing) {
+		for (int y = 0; y < height; y++) {
+			double positionIm = topLeftIm + y*spacing;
+			int row = y*width;
+			
+			for (int x = 0; x < width; x++) {
+				cRe[row + x] = topLeftRe + x*spacing;
+				cIm[row + x] = positionIm;
+			}
+		}
+		onLattice = false;
+		latticeKernel = null;
+				
+		startPixels(kernel, spacing);
+		buildActiveLists();
+	}
+	/**
+	 * Same as init(), except pixel (x, y) is placed on the lattice at
+	 * (originX + x)*spacing + (originY + y)*spacing*i, and every pixel that
+	 * lands on exactly the same point as a finished (escaped or INTERIOR) pixel
+	 * of previous is copied from it instead of being iterated again. Only
+	 * works if previous was also placed by reproject(), with the same kernel
+	 * and a spacing a power of two times larger or smaller.
+	 * 
+	 * @param previous a frame that isn't being iterated anymore, or null
+	 * @return the number of pixels copied from previous
+	 */
+	public int reproject(FractalFrame previous, PrimitiveFractal kernel, long originX, long originY, double spacing) {
+		placeOnLattice(kernel, originX, originY, spacing);
+		
+		startPixels(kernel, spacing);
+		int reused = copyFinishedPixels(previous);
+		buildActiveLists();
+		
+		return reused;
+	}
+	
+	/**
+	 * Saves the state of every pixel. Only works for a frame placed by
+	 * reproject().
+	 * 
+	 * @return the snapshot, or null if the frame isn't on the lattice
+	 */
+	public Snapshot snapshot() {
+		if (!onLattice) {
+			return null;
+		}
+		
+		int aliveCount = 0;
+		for (int i = 0; i < width*height; i++) {
+			if (isAlive(i)) {
+				aliveCount++;
+			}
+		}
+		
+		Snapshot snapshot = new Snapshot(this, aliveCount);
+		int j = 0;
+		for (int i = 0; i < width*height; i++) {
+			if (isAlive(i)) {
+				snapshot.re[j] = re[i];
+				snapshot.im[j] = im[i];
+				snapshot.savedRe[j] = savedRe[i];
+				snapshot.savedIm[j] = savedIm[i];
+				j++;
+			}
+		}
+		
+		return snapshot;
+	}
+	/**
+	 * Same as reproject(), except every pixel is put back the way it was when
+	 * the snapshot was taken, as long as it was taken of a frame with the same
+	 * size, kernel and place on the lattice.
+	 * 
+	 * @return false if the snapshot doesn't match, in which case nothing changes
+	 */
+	public boolean restore(Snapshot snapshot, PrimitiveFractal kernel, long originX, long originY, double spacing) {
+		if (!snapshot.fits(width, height, kernel, originX, originY, spacing)) {
+			return false;
+		}
+		
+		placeOnLattice(kernel, originX, originY, spacing);
+		this.kernel = kernel;
+		periodicityTolerance2 = snapshot.periodicityTolerance2;
+		System.arraycopy(snapshot.escapeIter, 0, escapeIter, 0, escapeIter.length);
+		System.arraycopy(snapshot.escapeR2, 0, escapeR2, 0, escapeR2.length);
+		
+		Arrays.fill(alive, 0);
+		int j = 0;
+		for (int i = 0; i < width*height; i++) {
+			if (escapeIter[i] == NOT_ESCAPED) {
+				re[i] = snapshot.re[j];
+				im[i] = snapshot.im[j];
+				savedRe[i] = snapshot.savedRe[j];
+				savedIm[i] = snapshot.savedIm[j];
+				alive[i >>> 6] |= 1L << i;
+				j++;
+			}
+			
+			if (image != null) {
+				image.set(i, FractalColors.argbOf(kernel, escapeIter[i], escapeR2[i]));
+			}
+		}
+		
+		buildActiveLists();
+		
+		return true;
+	}
+	
+	/**
+	 * Marks every pixel that has an escape iteration in escapes (anything but
+	 * NOT_ESCAPED) as finished with it, so it isn't iterated. Used to fill in
+	 * pixels that were saved earlier, after init() or reproject() but before
+	 * the first iteration.
+	 * 
+	 * @param escapes  an escape iteration for each pixel, indexed by
+	 *                 y*width + x
+	 * @param escapeR2 the square of the size of each of those pixels at its
+	 *                 escape iteration, NaN where it isn't known, or null if
+	 *                 none of them are
+	 * @return the number of pixels marked
+	 */
+	public int markFinished(int[] escapes, float[] escapeR2) {
+		int marked = 0;
+		
+		for (int i = 0; i < width*height; i++) {
+			if (escapes[i] != NOT_ESCAPED && isAlive(i)) {
+				escapeIter[i] = escapes[i];
+				this.escapeR2[i] = escapeR2 == null ? Float.NaN : escapeR2[i];
+				alive[i >>> 6] &= ~(1L << i);
+				marked++;
+				
+				if (image != null) {
+					image.set(i, FractalColors.argbOf(kernel, escapes[i], this.escapeR2[i]));
+				}
+			}
+		}
+		
+		if (marked > 0) {
+			buildActiveLists();
+		}
+		
+		return marked;
+	}
+	
+	/**
+	 * Puts pixel (x, y) at (originX + x)*spacing + (originY + y)*spacing*i.
+	 */
+	private void placeOnLattice(PrimitiveFractal kernel, long originX, long originY, double spacing) {
+		for (int y = 0; y < height; y++) {
+			double positionIm = (originY + y)*spacing;
+			int row = y*width;
+			
+			for (int x = 0; x < width; x++) {
+				cRe[row + x] = (originX + x)*spacing;
+				cIm[row + x] = positionIm;
+			}
+		}
+		onLattice = true;
+		latticeKernel = kernel;
+		this.originX = originX;
+		this.originY = originY;
+		this.spacing = spacing;
+	}
+	/**
+	 * Starts the orbit of every pixel from its position.
+	 */
+	private void startPixels(PrimitiveFractal kernel, double spacing) {
+		this.kernel = kernel;
+		double tolerance = Math.min(PERIODICITY_TOLERANCE, spacing*PERIODICITY_SPACING_FRACTION);
+		periodicityTolerance2 = tolerance*tolerance;
+		
+		Arrays.fill(alive, 0);
+		for (int i = 0; i < width*height; i++) {
+			kernel.start(cRe[i], cIm[i], re, im, i);
+			savedRe[i] = re[i];
+			savedIm[i] = im[i];
+				
+			if (kernel.isInterior(cRe[i], cIm[i])) {
+				escapeIter[i] = INTERIOR;
+			}else {
+				escapeIter[i] = NOT_ESCAPED;
+				alive[i >>> 6] |= 1L << i;
+			}
+		}
+		
+		if (image != null) {
+			image.fill(FractalColors.argbOf(NOT_ESCAPED));
+		}
+	}
+	/**
+	 * Copies every finished pixel of previous that's at the same point as a
+	 * pixel of this frame. Both frames have to be on the lattice.
+	 */
+	private int copyFinishedPixels(FractalFrame previous) {
+		if (previous == null || !previous.onLattice || previous.latticeKernel != latticeKernel) {
+			return 0;
+		}
+		
+		//previous's spacing is 2^scale times this frame's
+		double ratio = previous.spacing/spacing;
+		int scale = Math.getExponent(ratio);
+		if (ratio != Math.scalb(1.0, scale) || Math.abs(scale) > 32) {
+			return 0;
+		}
+		
+		int reused = 0;
+		for (int y = 0; y < height; y++) {
+			int previousY = toPreviousPixel(originY + y, scale, previous.originY, previous.height);
+			if (previousY < 0) {
+				continue;
+			}
+			
+			for (int x = 0; x < width; x++) {
+				int previousX = toPreviousPixel(originX + x, scale, previous.originX, previous.width);
+				if (previousX < 0) {
+					continue;
+				}
+				
+				int i = y*width + x;
+				int j = previousY*previous.width + previousX;
+				int previousEscape = previous.escapeIter[j];
+				
+				//the positions are compared too, in case rounding put them apart
+				if (previousEscape != NOT_ESCAPED && previous.cRe[j] == cRe[i] && previous.cIm[j] == cIm[i]) {
+					escapeIter[i] = previousEscape;
+					escapeR2[i] = previous.escapeR2[j];
+					alive[i >>> 6] &= ~(1L << i);
+					reused++;
+					
+					if (image != null) {
+						image.set(i, FractalColors.argbOf(kernel, previousEscape, escapeR2[i]));
+					}
+				}
+			}
+		}
+		
+		return reused;
+	}
+	/**
+	 * @param n              a coordinate on a lattice 2^scale times finer than
+	 *                       the previous frame's
+	 * @param previousOrigin the coordinate of the previous frame's first pixel
+	 *                       on its own lattice
+	 * @return the pixel of the previous frame at n, or -1 if there isn't one
+	 */
+	private static int toPreviousPixel(long n, int scale, long previousOrigin, int previousSize) {
+		long previousN;
+		if (scale >= 0) {
+			if ((n & ((1L << scale) - 1)) != 0) {
+				return -1;
+			}
+			previousN = n >> scale;
+		}else {
+			previousN = n << -scale;
+		}
+		
+		long pixel = previousN - previousOrigin;
+		if (pixel < 0 || pixel >= previousSize) {
+			return -1;
+		}
+		
+		return (int) pixel;
+	}
+	/**
+	 * Fills each tile's active list with the pixels in it that are alive.
+	 */
+	private void buildActiveLists() {
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			int start = tile*TILE_SIZE;
+			int end = Math.min(start + TILE_SIZE, width*height);
+			int count = start;
+			
+			for (int i = start; i < end; i++) {
+				if (isAlive(i)) {
+					active[count] = i;
+					count++;
+				}
+			}
+		
+			activeCount[tile] = count - start;
+			escapedCount[tile] = 0;
+		}
+	}
+	
+	/**
+	 * Steps every pixel that's still alive once. Pixels that diverge are
+	 * marked with the given iteration and stop being iterated, and so are
+	 * pixels whose orbit turns out to be periodic.
+	 */
+	public void iterate(PrimitiveFractal kernel, int iteration) {
+		for (int tile = 0; tile < getTileCount(); tile++) {
+			iterateTile(kernel, iteration, tile);
+		}
+	}
+	/**
+	 * Same as iterate(), but only for the pixels in the given tile. Different
+	 * tiles can safely be iterated at the same time.
+	 */
+	public void iterateTile(PrimitiveFractal kernel, int iteration, int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int escaped = escapedCount[tile];
+		boolean saveOrbit = (iteration & (iteration - 1)) == 0;
+		LaneStepper stepper = this.stepper;
+		
+		int j = start;
+		if (stepper != null && kernel instanceof QuadraticFractal) {
+			QuadraticFractal quadratic = (QuadraticFractal) kernel;
+			int lanes = stepper.getLanes();
+			
+			for (; j + lanes <= end; j += lanes) {
+				long aliveLanes = 0;
+				for (int lane = 0; lane < lanes; lane++) {
+					if (isAlive(active[j + lane])) {
+						aliveLanes |= 1L << lane;
+					}
+				}
+				
+				long finished = stepper.step(quadratic, active, j, aliveLanes, re, im, cRe, cIm, savedRe, savedIm, saveOrbit, periodicityTolerance2);
+				while (finished != 0) {
+					int bit = Long.numberOfTrailingZeros(finished);
+					finished &= finished - 1;
+					
+					if (bit < 32) {
+						escape(active[j + bit], iteration);
+					}else {
+						finish(active[j + bit - 32], INTERIOR);
+					}
+					escaped++;
+				}
+			}
+		}
+		
+		//whatever is left over (or everything, without a stepper) one at a time
+		for (; j < end; j++) {
+			int i = active[j];
+			
+			if (isAlive(i)) {
+				kernel.step(re, im, i, cRe[i], cIm[i]);
+				double valueRe = re[i];
+				double valueIm = im[i];
+				
+				if (kernel.diverges(valueRe, valueIm, iteration)) {
+					escape(i, iteration);
+					escaped++;
+				}else if (saveOrbit) {
+					savedRe[i] = valueRe;
+					savedIm[i] = valueIm;
+				}else {
+					double dRe = valueRe - savedRe[i];
+					double dIm = valueIm - savedIm[i];
+					
+					if (dRe*dRe + dIm*dIm <= periodicityTolerance2) {
+						finish(i, INTERIOR);
+						escaped++;
+					}
+				}
+			}
+		}
+		
+		escapedCount[tile] = escaped;
+		if (escaped*COMPACT_RATIO > activeCount[tile]) {
+			compactTile(tile);
+		}
+	}
+	/**
+	 * Writes the color of a pixel that hasn't escaped into the image for every
+	 * pixel that's still alive, replacing anything else that was drawn there,
+	 * such as a PreviewRenderer's blocks.
+	 */
+	public void resetAliveColors() {
+		if (image == null) {
+			return;
+		}
+		
+		int argb = FractalColors.argbOf(NOT_ESCAPED);
+		for (int i = 0; i < width*height; i++) {
+			if (isAlive(i)) {
+				image.set(i, argb);
+			}
+		}
+	}
+	/**
+	 * Works out the result of pixel i from the start of its orbit, without
+	 * changing the frame, so it can be called from any thread. The pixel goes
+	 * through exactly the same steps and tests as in iterate(), so the result
+	 * is the same as iterating the whole frame maxIterations times.
+	 * 
+	 * @param escapeR2 where the square of the pixel's size at the iteration it
+	 *                 escapes at is stored, at index i, if it escapes
+	 * @return the iteration pixel i escapes at, INTERIOR, or NOT_ESCAPED if it
+	 *         hasn't done either after maxIterations
+	 */
+	public int escapeIteration(PrimitiveFractal kernel, int i, int maxIterations, float[] escapeR2) {
+		if (kernel.isInterior(cRe[i], cIm[i])) {
+			return INTERIOR;
+		}
+		
+		double[] valueRe = new double[1];
+		double[] valueIm = new double[1];
+		kernel.start(cRe[i], cIm[i], valueRe, valueIm, 0);
+		double lastRe = valueRe[0];
+		double lastIm = valueIm[0];
+		
+		for (int iteration = 1; iteration <= maxIterations; iteration++) {
+			kernel.step(valueRe, valueIm, 0, cRe[i], cIm[i]);
+			
+			if (kernel.diverges(valueRe[0], valueIm[0], iteration)) {
+				escapeR2[i] = (float) (valueRe[0]*valueRe[0] + valueIm[0]*valueIm[0]);
+				return iteration;
+			}else if ((iteration & (iteration - 1)) == 0) {
+				lastRe = valueRe[0];
+				lastIm = valueIm[0];
+			}else {
+				double dRe = valueRe[0] - lastRe;
+				double dIm = valueIm[0] - lastIm;
+				
+				if (dRe*dRe + dIm*dIm <= periodicityTolerance2) {
+					return INTERIOR;
+				}
+			}
+		}
+		
+		return NOT_ESCAPED;
+	}
+	
+	/**
+	 * Marks pixel i as escaped at iteration, with its current value, and
+	 * colors it.
+	 */
+	private void escape(int i, int iteration) {
+		finish(i, iteration);
+		escapeR2[i] = (float) (re[i]*re[i] + im[i]*im[i]);
+		
+		if (image != null) {
+			image.set(i, FractalColors.argbOf(kernel, iteration, escapeR2[i]));
+		}
+	}
+	/**
+	 * Stops iterating pixel i, recording escapeIteration as its result.
+	 */
+	private void finish(int i, int escapeIteration) {
+		escapeIter[i] = escapeIteration;
+		alive[i >>> 6] &= ~(1L << i);
+	}
+	/**
+	 * Removes every pixel that isn't alive anymore from the tile's active list,
+	 * keeping the rest in order.
+	 */
+	private void compactTile(int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int kept = start;
+		
+		for (int j = start; j < end; j++) {
+			int i = active[j];
+			
+			if (isAlive(i)) {
+				active[kept] = i;
+				kept++;
+			}
+		}
+		
+		activeCount[tile] = kept - start;
+		escapedCount[tile] = 0;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getTileCount() {
+		return (width*height + TILE_SIZE - 1)/TILE_SIZE;
+	}
+	
+	/**
+	 * @return the number of pixels that are still being iterated
+	 */
+	public int getAliveCount() {
+		int count = 0;
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			count += activeCount[tile] - escapedCount[tile];
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return the iteration each pixel escaped at, or NOT_ESCAPED or INTERIOR,
+	 *         indexed by y*width + x
+	 */
+	public int[] getEscapeIterations() {
+		return escapeIter;
+	}
+	/**
+	 * @return the square of the size of each escaped pixel at the iteration
+	 *         it escaped at, or NaN if it isn't known, indexed by y*width + x
+	 */
+	public float[] getEscapeR2() {
+		return escapeR2;
+	}
+	
+	public boolean isAlive(int i) {
+		return (alive[i >>> 6] & (1L << i)) != 0;
+	}
+	
+	/**
+	 * The saved state of a frame. Escape iterations and escapeR2 are kept for
+	 * every pixel, and orbits only for the pixels that were still alive.
+	 */
+	public static class Snapshot {
+		private int width;
+		private int height;
+		private PrimitiveFractal kernel;
+		private long originX;
+		private long originY;
+		private double spacing;
+		private double periodicityTolerance2;
+		
+		private int[] escapeIter;
+		private float[] escapeR2;
+		//the orbits of the alive pixels, in order
+		private double[] re;
+		private double[] im;
+		private double[] savedRe;
+		private double[] savedIm;
+		
+		private Snapshot(FractalFrame frame, int aliveCount) {
+			width = frame.width;
+			height = frame.height;
+			kernel = frame.latticeKernel;
+			originX = frame.originX;
+			originY = frame.originY;
+			spacing = frame.spacing;
+			periodicityTolerance2 = frame.periodicityTolerance2;
+			
+			escapeIter = frame.escapeIter.clone();
+			escapeR2 = frame.escapeR2.clone();
+			re = new double[aliveCount];
+			im = new double[aliveCount];
+			savedRe = new double[aliveCount];
+			savedIm = new double[aliveCount];
+		}
+
+		/**
+		 * @return whether this snapshot was taken of a frame with the given
+		 *         size, kernel and place on the lattice
+		 */
+		public boolean fits(int width, int height, PrimitiveFractal kernel, long originX, long originY, double spacing) {
+			return this.width == width && this.height == height && this.kernel == kernel
+					&& this.originX == originX && this.originY == originY && this.spacing == spacing;
+		}
+		/**
+		 * @return roughly how many bytes of memory this snapshot takes up
+		 */
+		public long getBytes() {
+			return 8L*escapeIter.length + 4*8L*re.length;
+		}
+	}
+}
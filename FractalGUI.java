@@ -9,13 +9,24 @@ import javax.swing.ScrollPaneConstants;
 /**
  * The GUI for this program.  Highest level swing component.
  * 
+ * Fractals whose step doesn't depend on the starting point, like Julia sets,
+ * are shown in FractalViewer2, which can share orbits between pixels, and the
+ * rest in FractalViewer. FractalViewer2 only works in doubles, so once it's
+ * zoomed in past them, the zoom is carried on in FractalViewer for fractals it
+ * can take past doubles (DDFractals and PerturbableFractals). Zooming back out
+ * from there stays in FractalViewer, using its history. Both viewers are kept,
+ * and selecting a fractal swaps the one that's showing if it has to.
+ * 
  * @author Samuel Lieberman
  *
  */
 public class FractalGUI extends JFrame{
 	private static final long serialVersionUID = 7296079999810708782L;
 	
-	private AbstractFractalViewer fractalViewer;
+	private FractalViewer fractalViewer;
+	private FractalViewer2 fractalViewer2;
+	//the viewer that's showing
+	private AbstractFractalViewer shownViewer;
 	/**
 	 * This is a list of instances of each fractal. Any new fractal should be added
 	 * to this list to automatically be included in the program.
@@ -53,6 +64,10 @@ public class FractalGUI extends JFrame{
 	 */
 	private void initGUI() {
 		fractalViewer = new FractalViewer();
+		fractalViewer2 = new FractalViewer2();
+		fractalViewer2.setPreferredSize(fractalViewer.getPreferredSize());
+		fractalViewer2.setDeepZoomHandler(this::zoomPastDoubles);
+		shownViewer = fractalViewer;
 		add(fractalViewer, BorderLayout.CENTER);
 		
 		JScrollPane choicePane = new JScrollPane();
@@ -68,13 +83,81 @@ public class FractalGUI extends JFrame{
 		
 		fractalButtons = new FractalButton[FRACTALS.length];
 		for (int i = 0; i < FRACTALS.length; i++) {
-			FractalButton fractalButton = new FractalButton(FRACTALS[i], fractalViewer, this);
+			FractalButton fractalButton = new FractalButton(FRACTALS[i], this);
 			choiceButtonsPanel.add(fractalButton);
 			
 			fractalButtons[i] = fractalButton;
 		}
 	}
 	
+	/**
+	 * Shows fractal in the viewer that's fastest for it, swapping it in for the
+	 * viewer that was showing at the same size if they're different.
+	 */
+	public void showFractal(RecursiveFractal fractal) {
+		AbstractFractalViewer viewer = getViewerFor(fractal);
+		
+		show(viewer);
+		viewer.start(fractal);
+	}
+	/**
+	 * @return the viewer fractal is shown in
+	 */
+	public AbstractFractalViewer getViewerFor(RecursiveFractal fractal) {
+		return fractal.isStepIndependentOfInitial() ? fractalViewer2 : fractalViewer;
+	}
+	/**
+	 * Swaps viewer in for the viewer that was showing at the same size if
+	 * they're different.
+	 */
+	private void show(AbstractFractalViewer viewer) {
+		if (viewer != shownViewer) {
+			shownViewer.stop();
+			viewer.setPreferredSize(shownViewer.getSize());
+			
+			remove(shownViewer);
+			add(viewer, BorderLayout.CENTER);
+			shownViewer = viewer;
+			validate();
+			repaint();
+		}
+	}
+	/**
+	 * Carries on a zoom from FractalViewer2 in FractalViewer once it's past
+	 * doubles, if FractalViewer can go further for fractal.
+	 */
+	private boolean zoomPastDoubles(RecursiveFractal fractal, double fracDiameter, BigComplex fracCenter) {
+		if (!(fractal instanceof DDFractal || fractal instanceof PerturbableFractal)) {
+			return false;
+		}
+		
+		show(fractalViewer);
+		fractalViewer.start(fractal, fracDiameter, fracCenter);
+		return true;
+	}
+	
+	/**
+	 * @return a copy of the list of every fractal included in the program
+	 */
+	public static RecursiveFractal[] getFractals() {
+		return FRACTALS.clone();
+	}
+	/**
+	 * Finds a fractal in the list of fractals by either its name or its class
+	 * name, ignoring case.
+	 * 
+	 * @return the fractal, or null if there's no fractal with that name
+	 */
+	public static RecursiveFractal findFractal(String name) {
+		for (RecursiveFractal fractal:FRACTALS) {
+			if (fractal.getName().equalsIgnoreCase(name) || fractal.getClass().getName().equalsIgnoreCase(name)) {
+				return fractal;
+			}
+		}
+		
+		return null;
+	}
+	
 	/**
 	 * Updates each button's enabled visuals. This method is called by any button
 	 * after being pressed.
@@ -1,22 +1,88 @@
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.event.ActionEvent;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.AbstractAction;
+import javax.swing.KeyStroke;
+import javax.swing.ToolTipManager;
 
 /**
  * Displays a fractal on it's canvas. Has a runtime adjustable width and height.
  * Pixel size can only be selected at compile time/when programming. Includes an
- * indicator showing where the next potential zoom would be. Is continuously
- * doing all the calculations for which points are part of the fractal or not.
+ * indicator showing where the next potential zoom would be. Works out which
+ * points are part of the fractal or not on a background thread, a bit more
+ * with each iteration, until the view is finished.
  * 
  * Different from FractalViewer2 in that it supports fractals like the
  * Mandelbrot Set, which requires doing different sets of calculations depending
  * on your starting position.
  * 
+ * The top left pixel is always snapped to a whole multiple of the spacing
+ * between pixels, so after zooming in or out by ZOOM_FACTOR or resizing, the
+ * pixels that were already finished in the last frame are copied into the new
+ * one instead of being calculated again. Pixels that were calculated before,
+ * even in an earlier run, are loaded from the TileCache, and the frame is
+ * saved back into it at every checkpoint iteration.
+ * 
+ * Every view zoomed to is kept in a FrameHistory. Alt+Left (or Backspace) goes
+ * back to the last view and Alt+Right goes forward again, carrying on from a
+ * snapshot of the frame if there's still one in memory. Hovering over the
+ * viewer shows how many views and snapshots the history holds and how much of
+ * its memory budget the snapshots use.
+ * 
+ * Alt+V switches between stepping the Mandelbrot Set and Julia sets several
+ * pixels at a time with SIMD instructions (see LaneStepper) and stepping them
+ * one at a time. Both give exactly the same picture.
+ * 
+ * Every new view is first shown as a rough preview by a PreviewRenderer, in
+ * blocks of 16 pixels, then 8, 4 and 2, before every pixel is iterated. The
+ * samples the preview calculates are kept, and the blocks are cleared once
+ * the frame has caught up to PREVIEW_ITERATIONS.
+ * 
+ * Each view is iterated until every pixel has escaped or the fractal's
+ * iteration budget for its diameter (see RecursiveFractal.getMaxIterations())
+ * has been used up, and then the frame is left alone, so a finished view
+ * doesn't keep a core busy. Zooming in raises the budget.
+ * 
+ * Alt+S switches to rendering each view once, to its iteration budget, with a
+ * SubdivisionRenderer, which skips the insides of
+ * rectangles whose borders all come out the same. Only views that fit in
+ * doubles of fractals that are connected (see RecursiveFractal.isConnected())
+ * are subdivided, and subdivided frames aren't saved to the
+ * TileCache or as snapshots, since the filled in pixels are only very
+ * nearly right.
+ * 
+ * The center of the view is kept as a BigComplex, so it stays exact however
+ * far in the view is zoomed. Once pixels get too close together for doubles
+ * to tell them apart, fractals that are PerturbableFractals switch over to a
+ * PerturbationFrame, which iterates every pixel in doubles as a small
+ * difference from one high precision ReferenceOrbit at the center, and can
+ * skip the first iterations with a SeriesApproximation. Fractals that aren't
+ * but are DDFractals switch over to a DDFrame instead, which iterates every
+ * pixel in double-double precision. Deep zooms
+ * aren't saved to the TileCache or as snapshots, since they don't sit on the
+ * lattice.
+ * 
+ * Everything is calculated on a background thread by a RenderQueue, so
+ * zooming, resizing and going back or forward only submit a new RenderJob,
+ * which cancels the one before it between tiles, and never wait for anything
+ * on the event dispatch thread. Everything the calculations use is only ever
+ * touched by that thread, and the event dispatch thread works out where to
+ * zoom from the view being shown instead.
+ * 
+ * Recoloring (see AbstractFractalViewer) is done by a Colorizer on the
+ * background thread too, between two iterations of the frame, or straight
+ * away if it's already finished. While equalizing, the frame is also colored
+ * again every time the number of iterations reaches a power of two, since the
+ * pixels that escape later change how the colors are spread out.
+ * 
  * @author Samuel Lieberman
  *
  */
@@ -25,86 +91,359 @@ public class FractalViewer extends AbstractFractalViewer{
 	
 	private static final int START_WIDTH = 400;
 	private static final int START_HEIGHT = 400;
-	private static final int PIXEL_SIZE = 2;
+	private static final int PIXEL_SIZE = 1;
 	
 	private static final double ZOOM_FACTOR = 2;
 	private static final double INDICATOR_THICKNESS = 5;
 	private static final Color INDICATOR_COLOR = new Color(255, 255, 255);
 	
-	private static final Color CONVERGE_COLOR = new Color(0, 0, 0);
-	//private static final Color ERROR_COLOR = new Color(255, 0, 0);
-	private static final Color[] COLOR_PATTERN = {
-			new Color(255, 0, 0),
-			new Color(255, 255, 0),
-			new Color(0, 255, 127),
-			new Color(0, 127, 127),
-			new Color(0, 0, 255),
-			new Color(127, 0, 127),
-	};
-	private static final int ITERATIONS_PER_COLOR = 2;
+	//the engine tiles calculated by this viewer are cached under
+	private static final String CACHE_ENGINE = "FractalFrame";
+	/**
+	 * the smallest distance between pixels, relative to the size of the
+	 * center, that doubles are used for. Doubles only have about 16 digits, so
+	 * this leaves a few digits to spare for rounding errors.
+	 */
+	private static final double DOUBLE_DOUBLE_SPACING = 1e-13;
+	/**
+	 * the number of iterations each sample of a preview is calculated to
+	 */
+	private static final int PREVIEW_ITERATIONS = 256;
 	
 	private RecursiveFractal fractal;
+	private PrimitiveFractal kernel;
 	
+	private int compWidth;
+	private int compHeight;
 	private double fracDiameter;
 	private double fracOverComp;
 	//private double compOverFrac;
 	private double fracWidth;
 	private double fracHeight;
 	private Complex fracCenter;
+	private BigComplex preciseCenter;
 	private Complex fracTopLeft;
+	private double pixSpacing;
+	//the position of the top left pixel in multiples of pixSpacing
+	private long latticeX;
+	private long latticeY;
 	//private Complex fracBottomRight;
 	
-	private Thread drawThread = null;
-	private Repainter repainter = null;
-	private Complex[][] pixelPositions;
-	private Complex[][] pixelValues;
-	private boolean[][] pixelConverges;
-	private Color[][] pixelColors;
+	private RenderQueue renderQueue;
+	private FractalFrame frame;
+	private FractalFrame previousFrame;
+	//used instead of frame when precision isn't DOUBLE
+	private DDFrame ddFrame;
+	private PerturbationFrame deepFrame;
+	private Precision precision;
+	private TileScheduler scheduler;
+	private SubdivisionRenderer subdivider;
+	private PreviewRenderer previewer;
+	private Colorizer colorizer;
+	//whether recolor() has been called since the frame was last colored
+	private AtomicBoolean recolorPending;
+	private volatile boolean subdividing;
+	//what setVectorized() last chose, which the frames catch up to between iterations
+	private volatile boolean vectorized;
+	//whether frame was rendered by subdivider, so it can't be carried on
+	private boolean subdivided;
+	//whether an iteration of frame was cancelled partway, so it can't be carried on
+	private boolean interrupted;
+	private TileCache cache;
+	private FrameHistory history;
+	//the view in history being shown, which the event dispatch thread zooms from
+	private FrameHistory.View shownView;
+	private RecursiveFractal shownFractal;
+	//the view frame is of, which only the background thread uses
+	private FrameHistory.View frameView;
 	
 	private boolean mouseIsIn;
 	private int mouseX;
 	private int mouseY;
 	
 	private int iterations;
-	private Color currentColor;
 	
 	public FractalViewer() {
+		this(TileScheduler.DEFAULT_PARALLELISM);
+	}
+	/**
+	 * @param parallelism the number of threads used to calculate each iteration
+	 */
+	public FractalViewer(int parallelism) {
 		mouseIsIn = false;
 		
+		frame = new FractalFrame();
+		previousFrame = new FractalFrame();
+		ddFrame = new DDFrame();
+		deepFrame = new PerturbationFrame();
+		precision = Precision.DOUBLE;
+		vectorized = frame.isVectorized();
+		scheduler = new TileScheduler(parallelism);
+		subdivider = new SubdivisionRenderer(scheduler);
+		previewer = new PreviewRenderer(scheduler);
+		colorizer = new Colorizer(scheduler);
+		recolorPending = new AtomicBoolean();
+		renderQueue = new RenderQueue("FractalViewer renderer");
+		cache = TileCache.getDefault();
+		history = new FrameHistory();
+		
 		addMouseMotionListener(new MotionDetector());
 		addMouseListener(new ZoomDetector());
 		addComponentListener(new ResizeDetector());
 		
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt LEFT"), "back");
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("BACK_SPACE"), "back");
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt RIGHT"), "forward");
+		getActionMap().put("back", new BackAction());
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt V"), "vectorize");
+		getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("alt S"), "subdivide");
+		getActionMap().put("forward", new ForwardAction());
+		getActionMap().put("vectorize", new VectorizeAction());
+		getActionMap().put("subdivide", new SubdivideAction());
+		
 		setPreferredSize(new Dimension(START_WIDTH, START_HEIGHT));
+		ToolTipManager.sharedInstance().registerComponent(this);
 	}
 	public void start(RecursiveFractal fractal) {
-		this.fractal = fractal;
+		shownView = null;
+		history.clear();
+		initForPosition(fractal, history.visit(fractal.getInitialScreenDiameter(), BigComplex.valueOf(fractal.getInitialScreenCenter())));
+	}
+	/**
+	 * Same as start(), except it goes straight on to the given view, with the
+	 * starting view before it in the history so going back still works. Used
+	 * to carry on a zoom from FractalViewer2.
+	 */
+	public void start(RecursiveFractal fractal, double fracDiameter, BigComplex fracCenter) {
+		shownView = null;
+		history.clear();
+		history.visit(fractal.getInitialScreenDiameter(), BigComplex.valueOf(fractal.getInitialScreenCenter()));
+		initForPosition(fractal, history.visit(fracDiameter, fracCenter));
+	}
+	public void stop() {
+		renderQueue.cancel();
+	}
+	@Override
+	public void recolor() {
+		if (recolorPending.compareAndSet(false, true)) {
+			renderQueue.execute(() -> recolorIfPending(false));
+		}
+	}
+	/**
+	 * Chooses whether QuadraticFractals are stepped several pixels at a time.
+	 * The frames are switched over on the background thread, before the next
+	 * iteration.
+	 * 
+	 * @return whether they will be, which is false if LaneStepper.VECTOR isn't
+	 *         available
+	 */
+	public boolean setVectorized(boolean vectorized) {
+		this.vectorized = vectorized && LaneStepper.VECTOR != null;
+		
+		return this.vectorized;
+	}
+	public boolean isVectorized() {
+		return vectorized;
+	}
+	/**
+	 * Chooses whether views are rendered once by a SubdivisionRenderer instead
+	 * of being iterated forever, and renders the view being shown again.
+	 */
+	public void setSubdividing(boolean subdividing) {
+		this.subdividing = subdividing;
+		
+		if (shownView != null) {
+			initForPosition(shownView);
+		}
+	}
+	public boolean isSubdividing() {
+		return subdividing;
+	}
+	/**
+	 * @return whether the view that was just placed is rendered by subdivider,
+	 *         which is only done in doubles, and only for connected fractals
+	 */
+	private boolean willSubdivide() {
+		return subdividing && precision == Precision.DOUBLE && fractal.isConnected();
+	}
+	/**
+	 * Shows view of the fractal being shown.
+	 */
+	private void initForPosition(FrameHistory.View view) {
+		initForPosition(shownFractal, view);
+	}
+	/**
+	 * Shows view of fractal. The view is rendered on the background thread,
+	 * after whatever it was doing is cancelled.
+	 */
+	private void initForPosition(RecursiveFractal fractal, FrameHistory.View view) {
+		shownView = view;
+		shownFractal = fractal;
+		int compWidth = getWidth();
+		int compHeight = getHeight();
 		
-		initForPosition(fractal.getInitialScreenDiameter(), fractal.getInitialScreenCenter());
+		renderQueue.submit(job -> render(job, fractal, view, compWidth, compHeight));
 	}
-	private void initForPosition(double fracDiameter, Complex fracCenter) {
-		if (drawThread != null && repainter != null) {
-			repainter.end();
-			try {
-				drawThread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+	/**
+	 * Shows view, after saving a snapshot of the view frame was showing, and
+	 * keeps iterating it until job is cancelled, every pixel has escaped or
+	 * the iteration budget of the view is used up. Runs on the background
+	 * thread.
+	 */
+	private void render(RenderJob job, RecursiveFractal fractal, FrameHistory.View view, int compWidth, int compHeight) {
+		if (frameView != null) {
+			history.save(frameView, precision != Precision.DOUBLE || subdivided || interrupted ? null : frame.snapshot(), iterations);
+		}
+		frameView = view;
+		
+		if (fractal != this.fractal) {
+			this.fractal = fractal;
+			kernel = PrimitiveAdapter.of(fractal);
+		}
+		applyVectorized();
+		setPosition(view.getFracDiameter(), view.getFracCenter(), compWidth, compHeight);
+		
+		FractalFrame.Snapshot snapshot = history.getSnapshot(view);
+		int pixelsWidth = (int) Math.ceil(compWidth/(double)(PIXEL_SIZE));
+		int pixelsHeight = (int) Math.ceil(compHeight/(double)(PIXEL_SIZE));
+		if (!willSubdivide() && precision == Precision.DOUBLE && snapshot != null && snapshot.fits(pixelsWidth, pixelsHeight, kernel, latticeX, latticeY, pixSpacing)) {
+			iterations = view.getIterations();
+			restorePixelValues(snapshot);
+		}else {
+			iterations = 0;
+			initPixelValues(true);
+		}
+		
+		if (job.isCancelled()) {
+			return;
+		}
+		present(PIXEL_SIZE, true);
+		
+		int maxIterations = fractal.getMaxIterations(view.getFracDiameter());
+		if (willSubdivide()) {
+			if (subdivide(maxIterations, job)) {
+				recolorIfPending(false);
+				present(PIXEL_SIZE, true);
+			}
+			return;
+		}
+	
+		int previewIterations = Math.min(PREVIEW_ITERATIONS, maxIterations);
+		boolean previewed = iterations == 0 && precision == Precision.DOUBLE && preview(previewIterations, job);
+		
+		while (!job.isCancelled() && iterations < maxIterations && getAliveCount() > 0) {
+			applyVectorized();
+			incrementIterations(job);
+			if (job.isCancelled()) {
+				return;
+			}
+			
+			if (previewed && iterations == previewIterations) {
+				frame.resetAliveColors();
 			}
+			//coloring again would wipe out the preview's blocks
+			if (!previewed || iterations >= previewIterations) {
+				recolorIfPending(FractalColors.isEqualizing() && Integer.bitCount(iterations) == 1);
+			}
+			present(PIXEL_SIZE, false);
+			
+			if (precision == Precision.DOUBLE && TileCache.isCheckpoint(iterations)) {
+				cache.store(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, frame.getWidth(), frame.getHeight(), frame.getEscapeIterations(), frame.getEscapeR2(), iterations);
+			}
+		}
+		if (job.isCancelled()) {
+			return;
 		}
 		
-		setPosition(fracDiameter, fracCenter);
+		//the pixels still alive are taken to be inside the fractal
+		recolorIfPending(FractalColors.isEqualizing());
+		present(PIXEL_SIZE, true);
+		if (precision == Precision.DOUBLE && !interrupted && iterations >= TileCache.MIN_CHECKPOINT) {
+			cache.store(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, frame.getWidth(), frame.getHeight(), frame.getEscapeIterations(), frame.getEscapeR2(), iterations);
+		}
+	}
+	/**
+	 * Switches both frames over to what setVectorized() last chose. Only
+	 * called between iterations, since the tiles read it while they're
+	 * iterated.
+	 */
+	private void applyVectorized() {
+		frame.setVectorized(vectorized);
+		previousFrame.setVectorized(vectorized);
+	}
+	/**
+	 * Shows each level of a preview of frame as soon as it's done.
+	 * 
+	 * @param maxIterations the most iterations each sample is calculated to
+	 * @return false if job was cancelled before the preview was finished
+	 */
+	private boolean preview(int maxIterations, RenderJob job) {
+		previewer.start(frame, kernel, maxIterations);
 		
-		iterations = 0;
-		initPixelValues();
+		boolean finished = true;
+		for (int level:PreviewRenderer.LEVELS) {
+			finished = previewer.render(level, job);
+			if (!finished) {
+				break;
+			}
+			
+			present(PIXEL_SIZE, true);
+		}
+		previewer.finish();
 		
-		repainter = new Repainter();
-		drawThread = new Thread(repainter);
-		drawThread.start();
+		return finished;
 	}
 	
-	private void setPosition(double fracDiameter, Complex fracCenter) {
-		int compWidth = getWidth();
-		int compHeight = getHeight();
+	/**
+	 * Colors the frame being iterated again from its escape iterations if
+	 * recolor() has been called since it was last colored, and shows it if it
+	 * isn't being iterated any more. Runs on the background thread, between
+	 * iterations.
+	 * 
+	 * @param force whether to color it again even if recolor() hasn't been
+	 *              called
+	 * @return whether the frame was colored again
+	 */
+	private boolean recolorIfPending(boolean force) {
+		if (!recolorPending.getAndSet(false) && !force || fractal == null) {
+			return false;
+		}
+		
+		int aliveArgb = FractalColors.argbOf(FractalFrame.NOT_ESCAPED);
+		if (precision == Precision.DOUBLE_DOUBLE) {
+			colorizer.colorize(fractal, ddFrame.getEscapeIterations(), ddFrame.getEscapeR2(), getImage(), aliveArgb);
+		}else if (precision == Precision.PERTURBATION) {
+			colorizer.colorize(fractal, deepFrame.getEscapeIterations(), deepFrame.getEscapeR2(), getImage(), aliveArgb);
+		}else {
+			colorizer.colorize(fractal, frame.getEscapeIterations(), frame.getEscapeR2(), getImage(), aliveArgb);
+		}
+		present(PIXEL_SIZE, true);
+		
+		return true;
+	}
+	
+	@Override
+	void renderFrame(RecursiveFractal fractal, double fracDiameter, Complex fracCenter, int iterations) {
+		this.fractal = fractal;
+		kernel = PrimitiveAdapter.of(fractal);
+		applyVectorized();
+		
+		setPosition(fracDiameter, BigComplex.valueOf(fracCenter), getWidth(), getHeight());
+		
+		this.iterations = 0;
+		initPixelValues(false);
+		
+		if (willSubdivide()) {
+			subdivide(iterations, RenderJob.UNCANCELLABLE);
+		}else {
+			while (this.iterations < iterations) {
+				incrementIterations(RenderJob.UNCANCELLABLE);
+			}
+		}
+		present(PIXEL_SIZE, true);
+	}
+	
+	private void setPosition(double fracDiameter, BigComplex preciseCenter, int compWidth, int compHeight) {
 		//int compCenterX = compWidth/2;//rounded down to the nearest pixel
 		//int compCenterY = compHeight/2;//rounded down to the nearest pixel
 		int compDiameter;
@@ -115,80 +454,196 @@ public class FractalViewer extends AbstractFractalViewer{
 			compDiameter = compHeight;
 		}
 		
+		this.compWidth = compWidth;
+		this.compHeight = compHeight;
 		this.fracDiameter = fracDiameter;
 		fracOverComp = fracDiameter/compDiameter;
 		//compOverFrac = compDiameter/fracDiameter;
 		fracWidth = compWidth*fracOverComp;
 		fracHeight = compHeight*fracOverComp;
-		this.fracCenter = fracCenter;
-		fracTopLeft = new Complex(fracCenter.re() - fracWidth/2, fracCenter.im() - fracHeight/2, ImMath.coordinateSystem.CARTISAN);
+		this.preciseCenter = preciseCenter;
+		fracCenter = preciseCenter.toComplex();
+		pixSpacing = PIXEL_SIZE*fracOverComp;
+		
+		precision = precisionFor(isPastDoubles(pixSpacing, fracCenter));
+		if (precision != Precision.DOUBLE) {
+			fracTopLeft = new Complex(fracCenter.re() - fracWidth/2, fracCenter.im() - fracHeight/2, ImMath.coordinateSystem.CARTISAN);
+		}else {
+			latticeX = Math.round((fracCenter.re() - fracWidth/2)/pixSpacing);
+			latticeY = Math.round((fracCenter.im() - fracHeight/2)/pixSpacing);
+			fracTopLeft = new Complex(latticeX*pixSpacing, latticeY*pixSpacing, ImMath.coordinateSystem.CARTISAN);
+		}
 		//fracBottomRight = new Complex(fracCenter.re() + fracWidth/2, fracCenter.im() + fracHeight/2, ImMath.coordinateSystem.CARTISAN);
 	}
-	private Complex compPosToFracPos(int compX, int compY) {
-		return new Complex(fracTopLeft.re() + compX*fracOverComp, fracTopLeft.im() + compY*fracOverComp, ImMath.coordinateSystem.CARTISAN);
+	/**
+	 * @return whether pixels pixSpacing apart around center are too close
+	 *         together for doubles to tell apart
+	 */
+	static boolean isPastDoubles(double pixSpacing, Complex center) {
+		double centerSize = Math.max(1, Math.max(Math.abs(center.re()), Math.abs(center.im())));
+		
+		return pixSpacing/centerSize < DOUBLE_DOUBLE_SPACING;
+	}
+	/**
+	 * @param pastDoubles whether the pixels are too close together for doubles
+	 * @return the cheapest precision kernel can be iterated in at that spacing.
+	 *         Perturbation works in doubles, so it's used as soon as doubles
+	 *         run out for fractals that support it, and double-doubles only
+	 *         for the ones that don't.
+	 */
+	private Precision precisionFor(boolean pastDoubles) {
+		if (!pastDoubles) {
+			return Precision.DOUBLE;
+		}else if (kernel instanceof PerturbableFractal) {
+			return Precision.PERTURBATION;
+		}else if (kernel instanceof DDFractal) {
+			return Precision.DOUBLE_DOUBLE;
+		}else {
+			return Precision.DOUBLE;
+		}
+	}
+	/**
+	 * Works out where a point on the component is in the view being shown,
+	 * without touching anything the background thread uses.
+	 * 
+	 * @return the exact position of the point, as an offset from the center of
+	 *         shownView
+	 */
+	private BigComplex compPosToFracPos(int compX, int compY) {
+		double fracOverComp = shownView.getFracDiameter()/Math.min(getWidth(), getHeight());
+		BigComplex offset = BigComplex.valueOf((compX - getWidth()/2.0)*fracOverComp, (compY - getHeight()/2.0)*fracOverComp);
+		
+		return shownView.getFracCenter().add(offset, ReferenceOrbit.precisionFor(PIXEL_SIZE*fracOverComp));
 	}
 	
-	private void initPixelValues() {
-		int pixelsWidth = (int) Math.ceil(getWidth()/(double)(PIXEL_SIZE));
-		int pixelsHeight = (int) Math.ceil(getHeight()/(double)(PIXEL_SIZE));
-		
-		pixelPositions = new Complex[pixelsWidth][pixelsHeight];
-		pixelValues = new Complex[pixelsWidth][pixelsHeight];
-		pixelConverges = new boolean[pixelsWidth][pixelsHeight];
-		pixelColors = new Color[pixelsWidth][pixelsHeight];
-		for (int pixX = 0; pixX < pixelsWidth; pixX++) {
-			for (int pixY = 0; pixY < pixelsHeight; pixY++) {
-				int compX = pixX*PIXEL_SIZE;
-				int compY = pixY*PIXEL_SIZE;
-				
-				Complex positionValue = new Complex(fracTopLeft.re() + compX*fracOverComp, fracTopLeft.im() + compY*fracOverComp);
-				pixelPositions[pixX][pixY] = positionValue;
-				pixelValues[pixX][pixY] = fractal.start(positionValue);
-				pixelConverges[pixX][pixY] = true;
-				pixelColors[pixX][pixY] = CONVERGE_COLOR;
+	/**
+	 * @param reuse whether to copy the pixels that were already finished in the
+	 *              last frame
+	 */
+	private void initPixelValues(boolean reuse) {
+		int pixelsWidth = (int) Math.ceil(compWidth/(double)(PIXEL_SIZE));
+		int pixelsHeight = (int) Math.ceil(compHeight/(double)(PIXEL_SIZE));
+		subdivided = false;
+		interrupted = false;
+		
+		if (precision == Precision.DOUBLE_DOUBLE) {
+			ddFrame.resize(pixelsWidth, pixelsHeight);
+			ddFrame.setImage(resizeImage(pixelsWidth, pixelsHeight));
+			ddFrame.init((DDFractal) kernel, DDComplex.valueOf(preciseCenter), -fracWidth/2, -fracHeight/2, pixSpacing);
+			iterations = 0;
+			return;
+		}else if (precision == Precision.PERTURBATION) {
+			ReferenceOrbit reference = new ReferenceOrbit((PerturbableFractal) kernel, preciseCenter, pixSpacing);
+			
+			deepFrame.resize(pixelsWidth, pixelsHeight);
+			deepFrame.setImage(resizeImage(pixelsWidth, pixelsHeight));
+			deepFrame.init((PerturbableFractal) kernel, reference, -fracWidth/2, -fracHeight/2, pixSpacing);
+			iterations = deepFrame.getSkippedIterations();
+			return;
+		}
+		
+		FractalFrame lastFrame = frame;
+		frame = previousFrame;
+		previousFrame = lastFrame;
+		previousFrame.setImage(null);
+		
+		frame.resize(pixelsWidth, pixelsHeight);
+		frame.setImage(resizeImage(pixelsWidth, pixelsHeight));
+		frame.reproject(reuse ? previousFrame : null, kernel, latticeX, latticeY, pixSpacing);
+		
+		if (reuse) {
+			int[] cached = frame.getEscapeIterations().clone();
+			float[] cachedR2 = frame.getEscapeR2().clone();
+			if (cache.restore(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, pixelsWidth, pixelsHeight, cached, cachedR2) > 0) {
+				frame.markFinished(cached, cachedR2);
 			}
 		}
 	}
-	private void incrementPixelValues() {
-		for (int x = 0; x < pixelValues.length; x++) {
-			for (int y = 0; y < pixelValues[x].length; y++) {
-				if (pixelConverges[x][y]) {
-					Complex oldValue = pixelValues[x][y];
-					Complex newValue = fractal.step(oldValue, pixelPositions[x][y]);
-					pixelValues[x][y] = newValue;
-					if (fractal.diverges(newValue, iterations)) {
-						pixelConverges[x][y] = false;
-						pixelColors[x][y] = currentColor;
-					}
-				}
-			}
+	/**
+	 * Same as initPixelValues(), except the frame carries on from snapshot.
+	 */
+	private void restorePixelValues(FractalFrame.Snapshot snapshot) {
+		int pixelsWidth = (int) Math.ceil(compWidth/(double)(PIXEL_SIZE));
+		int pixelsHeight = (int) Math.ceil(compHeight/(double)(PIXEL_SIZE));
+		
+		FractalFrame lastFrame = frame;
+		frame = previousFrame;
+		previousFrame = lastFrame;
+		previousFrame.setImage(null);
+		
+		frame.resize(pixelsWidth, pixelsHeight);
+		frame.setImage(resizeImage(pixelsWidth, pixelsHeight));
+		
+		frame.restore(snapshot, kernel, latticeX, latticeY, pixSpacing);
+		subdivided = false;
+		interrupted = false;
+	}
+	/**
+	 * Renders frame, which has to have just been placed, straight to
+	 * maxIterations with subdivider.
+	 * 
+	 * @return false if job was cancelled first, which leaves frame as it was
+	 */
+	private boolean subdivide(int maxIterations, RenderJob job) {
+		if (subdivider.render(frame, kernel, maxIterations, job) < 0) {
+			return false;
+		}
+		
+		iterations = maxIterations;
+		subdivided = true;
+		return true;
+	}
+	/**
+	 * @return false if job was cancelled before every tile was iterated
+	 */
+	private boolean incrementPixelValues(RenderJob job) {
+		int iteration = iterations;
+		
+		if (precision == Precision.DOUBLE_DOUBLE) {
+			return scheduler.run(ddFrame.getTileCount(), tile -> ddFrame.iterateTile(iteration, tile), job);
+		}else if (precision == Precision.PERTURBATION) {
+			deepFrame.prepare(iteration);
+			return scheduler.run(deepFrame.getTileCount(), tile -> deepFrame.iterateTile(iteration, tile), job);
+		}else {
+			return scheduler.run(frame.getTileCount(), tile -> frame.iterateTile(kernel, iteration, tile), job);
 		}
 	}
 	
-	private void incrementColor() {
-		//cycles through each of the colors switching every 10 iterations
-		currentColor = COLOR_PATTERN[(iterations/ITERATIONS_PER_COLOR)%COLOR_PATTERN.length];
+	/**
+	 * @return the number of pixels of the frame being iterated that haven't
+	 *         escaped yet
+	 */
+	private int getAliveCount() {
+		if (precision == Precision.DOUBLE_DOUBLE) {
+			return ddFrame.getAliveCount();
+		}else if (precision == Precision.PERTURBATION) {
+			return deepFrame.getAliveCount();
+		}else {
+			return frame.getAliveCount();
+		}
 	}
 	
-	protected void incrementIterations() {
+	protected void incrementIterations(RenderJob job) {
 		iterations++;
-		incrementColor();
 		
-		incrementPixelValues();
+		if (!incrementPixelValues(job)) {
+			interrupted = true;
+		}
+	}
+	
+	/**
+	 * Reports the size of the history, worked out again every time the
+	 * tooltip is shown so it's never out of date.
+	 */
+	@Override
+	public String getToolTipText(MouseEvent event) {
+		return String.format("%d views, %d snapshots using %.1f of %.1f MB", history.getViewCount(), history.getSnapshotCount(),
+				history.getBytesUsed()/1048576.0, history.getBudget()/1048576.0);
 	}
 	
 	@Override
 	protected void paintComponent(Graphics g) {
-		for (int pixX = 0; pixX < pixelColors.length; pixX++) {
-			for (int pixY = 0; pixY < pixelColors[pixX].length; pixY++) {
-				int compX = pixX*PIXEL_SIZE;
-				int compY = pixY*PIXEL_SIZE;
-				
-				g.setColor(pixelColors[pixX][pixY]);
-				
-				g.fillRect(compX, compY, PIXEL_SIZE, PIXEL_SIZE);//draws a point
-			}
-		}
+		drawImage(g, PIXEL_SIZE);
 		
 		if (mouseIsIn) {
 			int compWidth = getWidth();
@@ -218,15 +673,19 @@ public class FractalViewer extends AbstractFractalViewer{
 	private class ZoomDetector implements MouseListener {
 		@Override
 		public void mouseClicked(MouseEvent arg0) {
-			Complex newCenter = compPosToFracPos(mouseX, mouseY);
+			if (shownView == null) {
+				return;
+			}
+			
+			BigComplex newCenter = compPosToFracPos(mouseX, mouseY);
 			double newFracDiameter;
 			if (arg0.isControlDown()) {
-				newFracDiameter = fracDiameter*ZOOM_FACTOR;
+				newFracDiameter = shownView.getFracDiameter()*ZOOM_FACTOR;
 			}else {
-				newFracDiameter = fracDiameter/ZOOM_FACTOR;
+				newFracDiameter = shownView.getFracDiameter()/ZOOM_FACTOR;
 			}
 			
-			initForPosition(newFracDiameter, newCenter);
+			initForPosition(history.visit(newFracDiameter, newCenter));
 		}
 
 		@Override
@@ -250,26 +709,53 @@ public class FractalViewer extends AbstractFractalViewer{
 		
 		@Override
 		public void componentResized(ComponentEvent arg0) {
-			if (fracCenter != null) {
-				initForPosition(fracDiameter, fracCenter);
+			if (shownView != null) {
+				initForPosition(shownView);
 			}
 		}
 		
 		@Override public void componentShown(ComponentEvent arg0) {}
 	}
-	private class Repainter implements Runnable{
-		private boolean end = false;
+	private class BackAction extends AbstractAction {
+		private static final long serialVersionUID = -2750264400812542371L;
 		
-		public void end() {
-			end = true;
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			if (shownView != null && history.canGoBack()) {
+				initForPosition(history.back());
+			}
 		}
+	}
+	private class ForwardAction extends AbstractAction {
+		private static final long serialVersionUID = 5116318457385040962L;
 		
 		@Override
-		public void run() {
-			while (!end) {
-				incrementIterations();
-				repaint();
+		public void actionPerformed(ActionEvent arg0) {
+			if (shownView != null && history.canGoForward()) {
+				initForPosition(history.forward());
 			}
 		}
 	}
+	private class VectorizeAction extends AbstractAction {
+		private static final long serialVersionUID = -6425961702851470394L;
+		
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			setVectorized(!isVectorized());
+		}
+	}
+	private class SubdivideAction extends AbstractAction {
+		private static final long serialVersionUID = 3409226178405318276L;
+		
+		@Override
+		public void actionPerformed(ActionEvent arg0) {
+			setSubdividing(!isSubdividing());
+		}
+	}
+	/**
+	 * The ways a frame can be iterated, from cheapest to most precise.
+	 */
+	private enum Precision {
+		DOUBLE, DOUBLE_DOUBLE, PERTURBATION
+	}
 }
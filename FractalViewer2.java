@@ -1,23 +1,52 @@
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.Point;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Displays a fractal on it's canvas. Has a runtime adjustable width and height.
  * Pixel size can only be selected at compile time/when programming. Includes an
- * indicator showing where the next potential zoom would be. Is continuously
- * doing all the calculations for which points are part of the fractal or not.
+ * indicator showing where the next potential zoom would be. Works out which
+ * points are part of the fractal or not on a background thread, stepping the
+ * whole PixelGraph once per iteration, until the view is finished.
  * 
- * Different from FractalViewer in that it doesn't support fractals like the
- * Mandelbrot Set, which requires doing different sets of calculations depending
- * on your starting position. Because of this, it was able to be optimized for
- * these simpler fractals.  Works a lot faster than FractalViewer
+ * Different from FractalViewer in that it's optimized for fractals whose step
+ * doesn't depend on your starting position, like Julia sets, and works a lot
+ * faster than FractalViewer for them. Fractals like the Mandelbrot Set, which
+ * require doing different sets of calculations depending on your starting
+ * position, still work, but every pixel is iterated on its own.
+ * 
+ * The pixels are kept in a PixelGraph, where each pixel whose orbit lands on
+ * another pixel follows that pixel's orbit instead of being iterated itself,
+ * as long as the fractal's isStepIndependentOfInitial(). Its tiles are
+ * iterated on several threads by a TileScheduler.
+ * 
+ * Like FractalViewer, the top left pixel is snapped to a whole multiple of the
+ * spacing between pixels so that pixels can be loaded from and saved to the
+ * TileCache.
+ * 
+ * Each view is iterated until every pixel has a result or the fractal's
+ * iteration budget for its diameter (see RecursiveFractal.getMaxIterations())
+ * is used up, and then left alone.
+ * 
+ * Also like FractalViewer, everything is calculated on a background thread by
+ * a RenderQueue, and zooming or resizing only submits a new RenderJob, which
+ * cancels the one before it between tiles. The event dispatch
+ * thread zooms from shownDiameter and shownCenter, and never touches the
+ * fields the background thread calculates with.
+ * 
+ * Recoloring (see AbstractFractalViewer) is done by a Colorizer on the
+ * background thread from the escape iterations of the PixelGraph, the same
+ * way as in FractalViewer.
+ * 
+ * Everything is calculated in doubles, so zooming in until the pixels are too
+ * close together for doubles (see FractalViewer.isPastDoubles()) asks the
+ * DeepZoomHandler, if there is one, to carry on the zoom somewhere that can.
  * 
  * @author Samuel Lieberman
  *
@@ -33,20 +62,11 @@ public class FractalViewer2 extends AbstractFractalViewer{
 	private static final double INDICATOR_THICKNESS = 5;
 	private static final Color INDICATOR_COLOR = new Color(255, 255, 255);
 	
-	private static final Color UNCERTAIN_COLOR = new Color(50, 50, 50);
-	private static final Color CONVERGE_COLOR = new Color(0, 0, 0);
-	//private static final Color ERROR_COLOR = new Color(255, 0, 0);
-	private static final Color[] COLOR_PATTERN = {
-			new Color(255, 0, 0),
-			new Color(255, 255, 0),
-			new Color(0, 255, 127),
-			new Color(0, 127, 127),
-			new Color(0, 0, 255),
-			new Color(127, 0, 127),
-	};
-	private static final int ITERATIONS_PER_COLOR = 2;
+	//the engine tiles calculated by this viewer are cached under
+	private static final String CACHE_ENGINE = "FractalViewer2";
 	
 	private RecursiveFractal fractal;
+	private PrimitiveFractal kernel;
 	
 	private int compWidth;
 	private int compHeight;
@@ -55,16 +75,25 @@ public class FractalViewer2 extends AbstractFractalViewer{
 	private int pixHeight;
 	private double fracDiameter;
 	private double fracOverComp;
-	private double compOverFrac;
 	private double fracWidth;
 	private double fracHeight;
 	private Complex fracCenter;
 	private Complex fracTopLeft;
 	//private Complex fracBottomRight;
+	private double pixSpacing;
+	//the position of the top left pixel in multiples of pixSpacing
+	private long latticeX;
+	private long latticeY;
 	
-	private Thread drawThread = null;
-	private Repainter repainter = null;
-	private Pixel[][] pixels;
+	private RenderQueue renderQueue;
+	private TileScheduler scheduler;
+	private PixelGraph graph;
+	private Colorizer colorizer;
+	//whether recolor() has been called since the graph was last colored
+	private AtomicBoolean recolorPending;
+	//the color of pixels without a result, which changes once the iteration budget is used up
+	private int aliveArgb;
+	private TileCache cache;
 	
 	private boolean mouseIsIn;
 	private int mouseX;
@@ -74,11 +103,42 @@ public class FractalViewer2 extends AbstractFractalViewer{
 	//private Color currentColor;
 	
 	private boolean started;
+	//the view being shown, which the event dispatch thread zooms from
+	private double shownDiameter;
+	private Complex shownCenter;
+	private RecursiveFractal shownFractal;
+	private DeepZoomHandler deepZoomHandler;
+	
+	/**
+	 * Takes over zooms that go past what doubles can show.
+	 */
+	public interface DeepZoomHandler {
+		/**
+		 * Called on the event dispatch thread instead of zooming to a view
+		 * whose pixels are too close together for doubles.
+		 * 
+		 * @return whether the zoom was taken over. If not, the view is shown
+		 *         anyway, as well as doubles can.
+		 */
+		public boolean zoomPastDoubles(RecursiveFractal fractal, double fracDiameter, BigComplex fracCenter);
+	}
 	
 	public FractalViewer2() {
+		this(TileScheduler.DEFAULT_PARALLELISM);
+	}
+	/**
+	 * @param parallelism the number of threads used to calculate each iteration
+	 */
+	public FractalViewer2(int parallelism) {
 		mouseIsIn = false;
 		
 		started = false;
+		scheduler = new TileScheduler(parallelism);
+		graph = new PixelGraph();
+		colorizer = new Colorizer(scheduler);
+		recolorPending = new AtomicBoolean();
+		cache = TileCache.getDefault();
+		renderQueue = new RenderQueue("FractalViewer2 renderer");
 		
 		addMouseMotionListener(new MotionDetector());
 		addMouseListener(new ZoomDetector());
@@ -87,34 +147,104 @@ public class FractalViewer2 extends AbstractFractalViewer{
 		setPreferredSize(new Dimension(START_WIDTH, START_HEIGHT));
 	}
 	public void start(RecursiveFractal fractal) {
-		this.fractal = fractal;
-		
+		shownFractal = fractal;
 		initForPosition(fractal.getInitialScreenDiameter(), fractal.getInitialScreenCenter());
 		
 		started = true;
 	}
+	public void stop() {
+		renderQueue.cancel();
+	}
+	public void setDeepZoomHandler(DeepZoomHandler deepZoomHandler) {
+		this.deepZoomHandler = deepZoomHandler;
+	}
+	@Override
+	public void recolor() {
+		if (recolorPending.compareAndSet(false, true)) {
+			renderQueue.execute(() -> recolorIfPending(false));
+		}
+	}
+	/**
+	 * Shows the given view. The view is rendered on the background thread,
+	 * after whatever it was doing is cancelled.
+	 */
 	private void initForPosition(double fracDiameter, Complex fracCenter) {
-		if (drawThread != null && repainter != null) {
-			repainter.end();
-			try {
-				drawThread.join();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
+		shownDiameter = fracDiameter;
+		shownCenter = fracCenter;
+		RecursiveFractal fractal = shownFractal;
+		int compWidth = getWidth();
+		int compHeight = getHeight();
+		
+		renderQueue.submit(job -> render(job, fractal, fracDiameter, fracCenter, compWidth, compHeight));
+	}
+	/**
+	 * Shows the given view and keeps iterating it until job is cancelled, every
+	 * pixel has a result or the iteration budget of the view is used up. Runs
+	 * on the background thread.
+	 */
+	private void render(RenderJob job, RecursiveFractal fractal, double fracDiameter, Complex fracCenter, int compWidth, int compHeight) {
+		if (fractal != this.fractal) {
+			this.fractal = fractal;
+			kernel = PrimitiveAdapter.of(fractal);
+		}
+		setPosition(fracDiameter, fracCenter, compWidth, compHeight);
+		
+		iterations = 0;
+		aliveArgb = PixelGraph.UNCERTAIN_ARGB;
+		initPixelValues();
+		restoreFromCache();
+		
+		if (job.isCancelled()) {
+			return;
+		}
+		present(PIXEL_SIZE, true);
+		
+		int maxIterations = fractal.getMaxIterations(fracDiameter);
+		while (iterations < maxIterations && graph.getPendingCount() > 0) {
+			if (!incrementIterations(job)) {
+				return;
 			}
+			recolorIfPending(FractalColors.isEqualizing() && Integer.bitCount(iterations) == 1);
+			present(PIXEL_SIZE, false);
+			
+			if (TileCache.isCheckpoint(iterations)) {
+				cache.store(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, pixWidth, pixHeight, graph.getEscapeIterations(), graph.getEscapeR2(), iterations);
+			}
+		}
+		
+		//the pixels still without a result are taken to be inside the fractal
+		aliveArgb = FractalColors.argbOf(FractalFrame.INTERIOR);
+		if (!recolorIfPending(FractalColors.isEqualizing()) && graph.getPendingCount() > 0) {
+			scheduler.run(graph.getTileCount(), tile -> graph.paintTile(tile, aliveArgb));
+		}
+		present(PIXEL_SIZE, true);
+		if (iterations >= TileCache.MIN_CHECKPOINT) {
+			cache.store(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, pixWidth, pixHeight, graph.getEscapeIterations(), graph.getEscapeR2(), iterations);
 		}
+	}
+	
+	@Override
+	void renderFrame(RecursiveFractal fractal, double fracDiameter, Complex fracCenter, int iterations) {
+		this.fractal = fractal;
+		kernel = PrimitiveAdapter.of(fractal);
 		
-		setPosition(fracDiameter, fracCenter);
+		setPosition(fracDiameter, fracCenter, getWidth(), getHeight());
 		
-		iterations = 0;
+		this.iterations = 0;
+		aliveArgb = PixelGraph.UNCERTAIN_ARGB;
 		initPixelValues();
 		
-		repainter = new Repainter();
-		drawThread = new Thread(repainter);
-		drawThread.start();	
-	}	
-	private void setPosition(double fracDiameter, Complex fracCenter) {
-		compWidth = getWidth();
-		compHeight = getHeight();
+		for (int i = 0; i < iterations; i++) {
+			incrementIterations(RenderJob.UNCANCELLABLE);
+		}
+		present(PIXEL_SIZE, true);
+		
+		started = true;
+	}
+	
+	private void setPosition(double fracDiameter, Complex fracCenter, int compWidth, int compHeight) {
+		this.compWidth = compWidth;
+		this.compHeight = compHeight;
 		//int compCenterX = compWidth/2;//rounded down to the nearest pixel
 		//int compCenterY = compHeight/2;//rounded down to the nearest pixel
 		
@@ -129,77 +259,93 @@ public class FractalViewer2 extends AbstractFractalViewer{
 		
 		this.fracDiameter = fracDiameter;
 		fracOverComp = fracDiameter/compDiameter;
-		compOverFrac = compDiameter/fracDiameter;
 		fracWidth = compWidth*fracOverComp;
 		fracHeight = compHeight*fracOverComp;
 		this.fracCenter = fracCenter;
-		fracTopLeft = new Complex(fracCenter.re() - fracWidth/2, fracCenter.im() - fracHeight/2, ImMath.coordinateSystem.CARTISAN);
+		pixSpacing = PIXEL_SIZE*fracOverComp;
+		latticeX = Math.round((fracCenter.re() - fracWidth/2)/pixSpacing);
+		latticeY = Math.round((fracCenter.im() - fracHeight/2)/pixSpacing);
+		fracTopLeft = new Complex(latticeX*pixSpacing, latticeY*pixSpacing, ImMath.coordinateSystem.CARTISAN);
 		//fracBottomRight = new Complex(fracCenter.re() + fracWidth/2, fracCenter.im() + fracHeight/2, ImMath.coordinateSystem.CARTISAN);
 	}
 	
-	private Point pixPosToCompPos(int pixX, int pixY) {
-		return new Point(pixX*PIXEL_SIZE, pixY*PIXEL_SIZE);
-	}
-	private Complex compPosToFracPos(int compX, int compY) {
-		return new Complex(fracTopLeft.re() + compX*fracOverComp, fracTopLeft.im() + compY*fracOverComp, ImMath.coordinateSystem.CARTISAN);
+	private void initPixelValues() {
+		graph.resize(pixWidth, pixHeight);
+		graph.setImage(resizeImage(pixWidth, pixHeight));
+		graph.init(kernel, fracTopLeft.re(), fracTopLeft.im(), pixSpacing);
+	
+		updateImage();
 	}
-	private Point FracPosToPixPos(Complex fracPos) {
-		return new Point((int) ((fracPos.re()-fracTopLeft.re())*compOverFrac/PIXEL_SIZE), (int) ((fracPos.im()-fracTopLeft.im())*compOverFrac/PIXEL_SIZE));
+	/**
+	 * @return false if job was cancelled before every tile was stepped
+	 */
+	private boolean incrementPixelValues(RenderJob job) {
+		int iteration = iterations;
+			
+		return scheduler.run(graph.getTileCount(), tile -> graph.iterateTile(kernel, iteration, tile), job);
 	}
 	
-	private void initPixelValues() {
-		pixels = new Pixel[pixWidth][pixHeight];
-		for (int pixX = 0; pixX < pixWidth; pixX++) {
-			for (int pixY = 0; pixY < pixHeight; pixY++) {
-				//int compX = pixX*PIXEL_SIZE;
-				//int compY = pixY*PIXEL_SIZE;
-				
-				Point compPos = pixPosToCompPos(pixX, pixY);
-				Complex fracPos = compPosToFracPos((int) compPos.getX(), (int) compPos.getY());
-				
-				pixels[pixX][pixY] = new Pixel(fracPos);
-				
-//				pixelPositions[pixX][pixY] = positionValue;
-//				pixelValues[pixX][pixY] = fractal.start(positionValue);
-//				pixelConverges[pixX][pixY] = true;
-//				pixelColors[pixX][pixY] = CONVERGE_COLOR;
-			}
+	/**
+	 * @return false if job was cancelled, in which case the image isn't
+	 *         updated
+	 */
+	protected boolean incrementIterations(RenderJob job) {
+		iterations++;
+		//currentColor = colorOf(iterations);
+		
+		boolean changing = graph.getPendingCount() > 0;
+		if (!incrementPixelValues(job)) {
+			return false;
 		}
-	}
-	private void incrementPixelValues() {
-		for (int x = 0; x < pixels.length; x++) {
-			for (int y = 0; y < pixels[x].length; y++) {
-				if (!pixels[x][y].hasResult) {
-					pixels[x][y].advanceFracTarget();
-				}
-			}
+		if (changing) {
+			updateImage();
 		}
+		return true;
 	}
 	
-	private Color colorOf(int iteration) {
-		//cycles through each of the colors switching every 10 iterations
-		return COLOR_PATTERN[(iteration/ITERATIONS_PER_COLOR)%COLOR_PATTERN.length];
+	/**
+	 * Colors the graph again from its escape iterations if recolor() has been
+	 * called since it was last colored, and shows it if it isn't being
+	 * iterated any more. Runs on the background thread, between iterations.
+	 * 
+	 * @param force whether to color it again even if recolor() hasn't been
+	 *              called
+	 * @return whether the graph was colored again
+	 */
+	private boolean recolorIfPending(boolean force) {
+		if (!recolorPending.getAndSet(false) && !force || fractal == null) {
+			return false;
+		}
+		
+		colorizer.colorize(fractal, graph.getEscapeIterations(), graph.getEscapeR2(), getImage(), aliveArgb);
+		present(PIXEL_SIZE, true);
+		
+		return true;
 	}
-	
-	protected void incrementIterations() {
-		iterations++;
-		//currentColor = colorOf(iterations);
+	/**
+	 * Gives every pixel that's in the cache its cached result.
+	 */
+	private void restoreFromCache() {
+		int[] escapes = graph.getEscapeIterations();
+		float[] escapeR2 = graph.getEscapeR2();
 		
-		incrementPixelValues();
+		if (cache.restore(CACHE_ENGINE, fractal.getName(), latticeX, latticeY, pixSpacing, pixWidth, pixHeight, escapes, escapeR2) > 0) {
+			graph.markFinished(escapes, escapeR2);
+			updateImage();
+		}
+	}
+	
+	/**
+	 * Writes the current color of every pixel into the image.
+	 */
+	private void updateImage() {
+		scheduler.run(graph.getTileCount(), graph::paintTile);
 	}
 	
 	@Override
 	protected void paintComponent(Graphics g) {
 		if (started) {
-			for (int pixX = 0; pixX < pixels.length; pixX++) {
-				for (int pixY = 0; pixY < pixels[pixX].length; pixY++) {
-					Point compPos = pixPosToCompPos(pixX, pixY);
-					
-					g.setColor(pixels[pixX][pixY].getColor());
-					
-					g.fillRect((int) compPos.getX(), (int) compPos.getY(), PIXEL_SIZE, PIXEL_SIZE);//draws a point
-				}
-			}
+			drawImage(g, PIXEL_SIZE);
 			
 			if (mouseIsIn) {
 				int compWidth = getWidth();
@@ -231,14 +377,20 @@ public class FractalViewer2 extends AbstractFractalViewer{
 		@Override
 		public void mouseClicked(MouseEvent arg0) {
 			if (started) {
-				Complex newCenter = compPosToFracPos(mouseX, mouseY);
+				double shownOverComp = shownDiameter/Math.min(getWidth(), getHeight());
+				Complex newCenter = new Complex(shownCenter.re() + (mouseX - getWidth()/2.0)*shownOverComp, shownCenter.im() + (mouseY - getHeight()/2.0)*shownOverComp, ImMath.coordinateSystem.CARTISAN);
 				double newFracDiameter;
 				if (arg0.isControlDown()) {
-					newFracDiameter = fracDiameter*ZOOM_FACTOR;
+					newFracDiameter = shownDiameter*ZOOM_FACTOR;
 				}else {
-					newFracDiameter = fracDiameter/ZOOM_FACTOR;
+					newFracDiameter = shownDiameter/ZOOM_FACTOR;
 				}
 				
+				double newPixSpacing = PIXEL_SIZE*newFracDiameter/Math.min(getWidth(), getHeight());
+				if (deepZoomHandler != null && FractalViewer.isPastDoubles(newPixSpacing, newCenter)
+						&& deepZoomHandler.zoomPastDoubles(shownFractal, newFracDiameter, BigComplex.valueOf(newCenter))) {
+					return;
+				}
 				initForPosition(newFracDiameter, newCenter);
 			}
 		}
@@ -265,107 +417,10 @@ public class FractalViewer2 extends AbstractFractalViewer{
 		@Override
 		public void componentResized(ComponentEvent arg0) {
 			if (started) {
-				initForPosition(fracDiameter, fracCenter);
+				initForPosition(shownDiameter, shownCenter);
 			}
 		}
 		
 		@Override public void componentShown(ComponentEvent arg0) {}
 	}
-	private class Repainter implements Runnable{
-		private boolean end = false;
-		
-		public void end() {
-			end = true;
-		}
-		
-		@Override
-		public void run() {
-			while (!end) {
-				incrementIterations();
-				repaint();
-			}
-		}
-	}
-	
-	private class Pixel {
-		private Complex fracPosition;
-		
-		private Complex fracTarget;
-		private Pixel target;
-		private boolean isEnd;
-		
-		private int lastIteration;
-		private boolean hasResult;
-		private boolean diverged;
-		
-		public Pixel(Complex fracPosition) {
-			this.fracPosition = fracPosition;
-			fracTarget = fractal.start(fracPosition);
-			
-			target = this; isEnd = true;
-			
-			lastIteration = iterations;
-			hasResult = false;
-			diverged = true;
-		}
-		
-		private void advancePixTarget() {
-			Pixel currentPix = this;
-			
-			while (!currentPix.isEnd) {
-				currentPix = currentPix.target;
-			}
-			
-			lastIteration = currentPix.lastIteration;
-			hasResult = currentPix.hasResult;
-			diverged = currentPix.diverged;
-		}
-		public void advanceFracTarget() {
-			if (isEnd) {
-				
-				fracTarget = fractal.step(fracTarget, fracPosition);
-				//TODO: make all this code work even when there are no pixels to go to
-				Point pixPos = FracPosToPixPos(fracTarget);
-				if (pixPos.getX() < 0 || pixPos.getY() < 0 || pixPos.getX() >= pixWidth || pixPos.getY() >= pixHeight) {
-					if (fractal.diverges(fracTarget, lastIteration)) {
-						hasResult = true;
-						diverged = true;
-					}
-				}else {
-					Pixel hitPixel = pixels[(int) pixPos.getX()][(int) pixPos.getY()];
-					hitPixel.advancePixTarget();
-					
-					if (hitPixel.target == this) {
-						hasResult = true;
-						diverged = false;
-					}else {
-						isEnd = false; target = hitPixel.target;
-					}
-				}
-			}else {
-				advancePixTarget();
-				target.advanceFracTarget();
-			}
-			
-			lastIteration = iterations;
-		}
-//		public Pixel getTarget() {
-//			advancePixTarget();
-//			return target;
-//		}
-//		public boolean getIsEnd() {
-//			return isEnd;
-//		}
-		public Color getColor() {
-			if (hasResult) {
-				if (diverged) {
-					return colorOf(lastIteration);
-				}else {
-					return CONVERGE_COLOR;
-				}
-			}else {
-				return UNCERTAIN_COLOR;
-			}
-		}
-	}
-}
\ No newline at end of file
+}
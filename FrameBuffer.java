@@ -0,0 +1,173 @@
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A double buffered image of a fractal. The threads calculating the fractal
+ * write ARGB values into the back buffer, and publish() copies whatever has
+ * changed into the front buffer, which is the only one ever painted. Since
+ * publish() is only called between iterations, the front buffer always shows
+ * a consistent iteration even while the next one is being calculated.
+ * 
+ * Changes are tracked in square tiles of DIRTY_TILE_SIZE pixels, so only the
+ * tiles that changed are copied and repainted. publish() also limits itself
+ * to a target frame rate, so calculating iterations faster than they can be
+ * shown doesn't flood the event dispatch thread with repaints.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class FrameBuffer {
+	public static final int DIRTY_TILE_SIZE = 32;
+	public static final int DEFAULT_FPS = 30;
+	
+	private int width;
+	private int height;
+	private int tilesWide;
+	private int tilesHigh;
+	
+	private int[] back;
+	private boolean[] dirty;
+	
+	private BufferedImage front;
+	private int[] frontData;
+	
+	private long minPublishNanos;
+	private long lastPublish;
+	
+	public FrameBuffer() {
+		this(DEFAULT_FPS);
+	}
+	/**
+	 * @param fps the most times per second publish() will publish changes
+	 */
+	public FrameBuffer(int fps) {
+		minPublishNanos = 1000000000L/fps;
+		lastPublish = System.nanoTime() - minPublishNanos;
+		
+		resize(0, 0);
+	}
+	
+	/**
+	 * Changes the size of the image in pixels. Nothing is reallocated if the
+	 * size is unchanged.
+	 */
+	public synchronized void resize(int width, int height) {
+		if (back != null && width == this.width && height == this.height) {
+			return;
+		}
+		
+		this.width = width;
+		this.height = height;
+		tilesWide = (width + DIRTY_TILE_SIZE - 1)/DIRTY_TILE_SIZE;
+		tilesHigh = (height + DIRTY_TILE_SIZE - 1)/DIRTY_TILE_SIZE;
+		
+		back = new int[width*height];
+		dirty = new boolean[tilesWide*tilesHigh];
+		
+		if (width > 0 && height > 0) {
+			front = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			frontData = ((DataBufferInt) front.getRaster().getDataBuffer()).getData();
+		}else {
+			front = null;
+			frontData = new int[0];
+		}
+	}
+	
+	/**
+	 * Sets the ARGB value of pixel i (y*width + x) in the back buffer. Pixels in
+	 * different tiles can be set from different threads at the same time.
+	 */
+	public void set(int i, int argb) {
+		if (back[i] != argb) {
+			back[i] = argb;
+			
+			int x = i%width;
+			int y = i/width;
+			dirty[(y/DIRTY_TILE_SIZE)*tilesWide + x/DIRTY_TILE_SIZE] = true;
+		}
+	}
+	/**
+	 * Sets every pixel in the back buffer to the same ARGB value.
+	 */
+	public void fill(int argb) {
+		Arrays.fill(back, argb);
+		Arrays.fill(dirty, true);
+	}
+	
+	/**
+	 * Copies every tile that changed since the last publish into the front
+	 * buffer. Must not be called while the back buffer is being written to.
+	 * 
+	 * @param force publish even if it's too soon after the last publish
+	 * @return the areas of the image that changed, in pixels, or an empty list
+	 *         if nothing was published
+	 */
+	public synchronized List<Rectangle> publish(boolean force) {
+		List<Rectangle> changed = new ArrayList<>();
+		
+		long now = System.nanoTime();
+		if (!force && now - lastPublish < minPublishNanos) {
+			return changed;
+		}
+		lastPublish = now;
+		
+		for (int tileY = 0; tileY < tilesHigh; tileY++) {
+			int tileX = 0;
+			
+			while (tileX < tilesWide) {
+				if (!dirty[tileY*tilesWide + tileX]) {
+					tileX++;
+					continue;
+				}
+				
+				//merges each run of dirty tiles in a row into one rectangle
+				int runStart = tileX;
+				while (tileX < tilesWide && dirty[tileY*tilesWide + tileX]) {
+					dirty[tileY*tilesWide + tileX] = false;
+					tileX++;
+				}
+				
+				int x = runStart*DIRTY_TILE_SIZE;
+				int y = tileY*DIRTY_TILE_SIZE;
+				int runWidth = Math.min(tileX*DIRTY_TILE_SIZE, width) - x;
+				int runHeight = Math.min(y + DIRTY_TILE_SIZE, height) - y;
+				
+				for (int row = y; row < y + runHeight; row++) {
+					System.arraycopy(back, row*width + x, frontData, row*width + x, runWidth);
+				}
+				
+				changed.add(new Rectangle(x, y, runWidth, runHeight));
+			}
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * Draws the front buffer with each of its pixels pixelSize wide.
+	 */
+	public synchronized void draw(Graphics g, int pixelSize) {
+		if (front != null) {
+			g.drawImage(front, 0, 0, width*pixelSize, height*pixelSize, null);
+		}
+	}
+	
+	/**
+	 * @return the front buffer, which only changes when publish() is called
+	 */
+	public BufferedImage getImage() {
+		return front;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+}
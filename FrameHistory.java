@@ -0,0 +1,188 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The views a viewer has been to, with back and forward like a web browser.
+ * Going to a new view drops every view after the current one.
+ * 
+ * Each view can also keep a snapshot of the frame that was showing it, so
+ * going back to it carries on from where it was instead of starting over. The
+ * snapshots are limited to a budget in bytes, and the least recently used ones
+ * are dropped first when they don't fit (the views themselves are kept).
+ * 
+ * Every method is synchronized, since views are visited on the event dispatch
+ * thread and snapshots are saved by the thread calculating the frames.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class FrameHistory {
+	public static final long DEFAULT_BUDGET = 64L << 20;
+	
+	private List<View> views;
+	private int current;
+	
+	private long budget;
+	private long bytesUsed;
+	//every view with a snapshot, least recently used first
+	private LinkedHashMap<View, Boolean> saved;
+	
+	public FrameHistory() {
+		this(DEFAULT_BUDGET);
+	}
+	/**
+	 * @param budget the most bytes of snapshots to keep
+	 */
+	public FrameHistory(long budget) {
+		this.budget = budget;
+		views = new ArrayList<>();
+		saved = new LinkedHashMap<>(16, 0.75f, true);
+		clear();
+	}
+	
+	/**
+	 * Forgets every view.
+	 */
+	public synchronized void clear() {
+		views.clear();
+		saved.clear();
+		current = -1;
+		bytesUsed = 0;
+	}
+	
+	/**
+	 * Goes to a new view, after the current one.
+	 * 
+	 * @return the new view
+	 */
+	public synchronized View visit(double fracDiameter, BigComplex fracCenter) {
+		while (views.size() > current + 1) {
+			unsave(views.remove(views.size() - 1));
+		}
+		
+		View view = new View(fracDiameter, fracCenter);
+		views.add(view);
+		current++;
+		
+		return view;
+	}
+	
+	public synchronized boolean canGoBack() {
+		return current > 0;
+	}
+	public synchronized boolean canGoForward() {
+		return current < views.size() - 1;
+	}
+	/**
+	 * @return the view before the current one, which is now the current one
+	 */
+	public synchronized View back() {
+		if (!canGoBack()) {
+			throw new IllegalStateException("there is no view to go back to");
+		}
+		
+		current--;
+		return views.get(current);
+	}
+	/**
+	 * @return the view after the current one, which is now the current one
+	 */
+	public synchronized View forward() {
+		if (!canGoForward()) {
+			throw new IllegalStateException("there is no view to go forward to");
+		}
+		
+		current++;
+		return views.get(current);
+	}
+	
+	/**
+	 * Keeps a snapshot of the frame that was showing view, replacing any
+	 * snapshot it already had.
+	 * 
+	 * @param iterations the number of iterations the frame was at
+	 */
+	public synchronized void save(View view, FractalFrame.Snapshot snapshot, int iterations) {
+		unsave(view);
+		if (snapshot == null || snapshot.getBytes() > budget || !views.contains(view)) {
+			return;
+		}
+		
+		view.snapshot = snapshot;
+		view.iterations = iterations;
+		saved.put(view, true);
+		bytesUsed += snapshot.getBytes();
+		
+		Iterator<View> iterator = saved.keySet().iterator();
+		while (bytesUsed > budget) {
+			View oldest = iterator.next();
+			iterator.remove();
+			bytesUsed -= oldest.snapshot.getBytes();
+			oldest.snapshot = null;
+		}
+	}
+	/**
+	 * @return the snapshot of view, or null if it doesn't have one
+	 */
+	public synchronized FractalFrame.Snapshot getSnapshot(View view) {
+		if (view.snapshot != null) {
+			saved.get(view);//counts as a use
+		}
+		
+		return view.snapshot;
+	}
+	private void unsave(View view) {
+		if (view.snapshot != null) {
+			saved.remove(view);
+			bytesUsed -= view.snapshot.getBytes();
+			view.snapshot = null;
+		}
+	}
+	
+	/**
+	 * @return the number of bytes of snapshots being kept
+	 */
+	public synchronized long getBytesUsed() {
+		return bytesUsed;
+	}
+	public synchronized long getBudget() {
+		return budget;
+	}
+	public synchronized int getViewCount() {
+		return views.size();
+	}
+	public synchronized int getSnapshotCount() {
+		return saved.size();
+	}
+	
+	/**
+	 * One view of a fractal.
+	 */
+	public static class View {
+		private double fracDiameter;
+		private BigComplex fracCenter;
+		
+		private FractalFrame.Snapshot snapshot;
+		private int iterations;
+		
+		private View(double fracDiameter, BigComplex fracCenter) {
+			this.fracDiameter = fracDiameter;
+			this.fracCenter = fracCenter;
+		}
+		
+		public double getFracDiameter() {
+			return fracDiameter;
+		}
+		public BigComplex getFracCenter() {
+			return fracCenter;
+		}
+		/**
+		 * @return the number of iterations the snapshot was taken at
+		 */
+		public int getIterations() {
+			return iterations;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders a fractal straight to an image without creating any AWT components,
+ * so fractals can be rendered on machines without a display. Every iteration
+ * is split across all of the given threads.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class HeadlessRenderer {
+	private PrimitiveFractal kernel;
+	private TileScheduler scheduler;
+	private FractalFrame frame;
+	private FrameBuffer image;
+	
+	private long renderNanos;
+	
+	public HeadlessRenderer(RecursiveFractal fractal, int parallelism) {
+		kernel = PrimitiveAdapter.of(fractal);
+		scheduler = new TileScheduler(parallelism);
+		frame = new FractalFrame();
+		image = new FrameBuffer();
+	}
+	
+	/**
+	 * Iterates every pixel of the given view until it escapes or maxIterations
+	 * is reached. The diameter fits across the shorter side of the image, the
+	 * same way it does in the viewers.
+	 * 
+	 * @return the rendered image
+	 */
+	public BufferedImage render(Complex center, double diameter, int width, int height, int maxIterations) {
+		long startTime = System.nanoTime();
+		
+		double spacing = diameter/Math.min(width, height);
+		frame.resize(width, height);
+		image.resize(width, height);
+		frame.setImage(image);
+		frame.init(kernel, center.re() - width*spacing/2, center.im() - height*spacing/2, spacing);
+		
+		for (int iteration = 1; iteration <= maxIterations && frame.getAliveCount() > 0; iteration++) {
+			int currentIteration = iteration;
+			
+			scheduler.run(frame.getTileCount(), tile -> frame.iterateTile(kernel, currentIteration, tile));
+		}
+		
+		image.publish(true);
+		
+		renderNanos = System.nanoTime() - startTime;
+		
+		return image.getImage();
+	}
+	
+	/**
+	 * @return how long the last call to render took in nanoseconds
+	 */
+	public long getRenderNanos() {
+		return renderNanos;
+	}
+	
+	/**
+	 * Stops the threads used for rendering.
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+	
+	/**
+	 * Renders a fractal and writes it to a png file, printing how long it took.
+	 */
+	public static void renderToFile(RecursiveFractal fractal, Complex center, double diameter, int width, int height, int maxIterations, File output) throws IOException {
+		HeadlessRenderer renderer = new HeadlessRenderer(fractal, TileScheduler.DEFAULT_PARALLELISM);
+		
+		BufferedImage image = renderer.render(center, diameter, width, height, maxIterations);
+		renderer.shutdown();
+		
+		if (!ImageIO.write(image, "png", output)) {
+			throw new IOException("no png writer available");
+		}
+		
+		double seconds = renderer.getRenderNanos()/1e9;
+		System.out.println("Rendered " + fractal.getName() + " at " + width + "x" + height + " on " + TileScheduler.DEFAULT_PARALLELISM + " threads");
+		System.out.printf("Render time: %.3f s (%.0f pixels/second)%n", seconds, width*height/seconds);
+		System.out.println("Wrote " + output);
+	}
+}
@@ -14,6 +14,9 @@ public class ImMath {
 	public static final Complex POS_I = new Complex(0, 1);//i
 	public static final Complex NEG_I = new Complex(0, -1);//-i
 	
+	//pow treats anything with a smaller magnitude than this as zero
+	private static final double ZERO_RADIUS = 0.000000001;
+	
 	//cannot be instantiated
 	private ImMath() {}
 	
@@ -57,22 +60,92 @@ public class ImMath {
 		return new Complex(realProduct, imaginaryProduct, coordinateSystem.CARTISAN);
 	}
 	
+	/**
+	 * Raises c to an integer power by repeated squaring, without any calls to
+	 * log, exp, sin or cos. Negative powers take the reciprocal of c first and
+	 * square that, so the result only overflows or underflows when c^n itself
+	 * does.
+	 */
+	public static Complex pow(Complex c, int n) {
+		double re = c.re();
+		double im = c.im();
+		double r2 = re*re + im*im;
+		
+		if (r2 < ZERO_RADIUS*ZERO_RADIUS) {
+			return ZERO;
+		}
+		
+		if (Double.isInfinite(re) || Double.isInfinite(im)) {
+			return ZERO;
+		}
+		
+		double resultRe = 1;
+		double resultIm = 0;
+		double baseRe = re;
+		double baseIm = im;
+		
+		if (n < 0) {
+			//1/z = conj(z)/|z|^2, divided through by the larger part so |z|^2
+			//can't overflow or underflow on the way
+			if (Math.abs(re) >= Math.abs(im)) {
+				double ratio = im/re;
+				double denominator = re + im*ratio;
+				baseRe = 1/denominator;
+				baseIm = -ratio/denominator;
+			}else {
+				double ratio = re/im;
+				double denominator = re*ratio + im;
+				baseRe = ratio/denominator;
+				baseIm = -1/denominator;
+			}
+		}
+		//the absolute value of Integer.MIN_VALUE doesn't fit in an int
+		long exponent = Math.abs((long) n);
+		
+		while (exponent > 0) {
+			if ((exponent & 1) != 0) {
+				double nextRe = resultRe*baseRe - resultIm*baseIm;
+				resultIm = resultRe*baseIm + resultIm*baseRe;
+				resultRe = nextRe;
+			}
+			
+			exponent >>= 1;
+			if (exponent > 0) {
+				double nextRe = baseRe*baseRe - baseIm*baseIm;
+				baseIm = 2*baseRe*baseIm;
+				baseRe = nextRe;
+			}
+		}
+		
+		return new Complex(resultRe, resultIm, coordinateSystem.CARTISAN);
+	}
+	/**
+	 * Raises c to a real power. Integer powers are sent to pow(Complex, int),
+	 * anything else is calculated directly in polar form.
+	 */
 	public static Complex pow(Complex c, double x) {
-		if (c.r() < 0.000000001) {
+		if (x == (int) x) {
+			return pow(c, (int) x);
+		}
+		
+		double r = c.r();
+		
+		if (r < ZERO_RADIUS) {
 			return ZERO;
 		}
 		
-		if (Double.isInfinite(c.r())) {
+		if (Double.isInfinite(r)) {
 			return ZERO;//TODO change
 		}
 		
-		Complex oldExp = new Complex(Math.log(c.r()), c.th(), coordinateSystem.CARTISAN);
-		Complex newExp = mult(x, oldExp);
-		Complex answer = new Complex(Math.pow(Math.E, newExp.re()), newExp.im(), coordinateSystem.POLAR);
-		return answer;
+		return new Complex(Math.pow(r, x), c.th()*x, coordinateSystem.POLAR);
 	}
 	public static Complex pow(Complex c1, Complex c2) {
-		if (c1.r() < 0.000000001) {
+		if (c2.im() == 0) {
+			return pow(c1, c2.re());
+		}
+		
+		if (c1.r() < ZERO_RADIUS) {
 			return ZERO;
 		}
 		
@@ -87,6 +160,6 @@ public class ImMath {
 	}
 	
 	public static Complex Div(Complex c1, Complex c2) {
-		return mult(c1, pow(c2, NEG_1));
+		return mult(c1, pow(c2, -1));
 	}
 }
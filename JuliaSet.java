@@ -5,9 +5,15 @@
  * @author Samuel Lieberman
  *
  */
-public abstract class JuliaSet implements RecursiveFractal {
+public abstract class JuliaSet implements DDFractal, QuadraticFractal {
 	private static final Complex START_POS = new Complex(0, 0);
 	private static final double DIVERGE_RADIUS = 2;
+	/**
+	 * Anything further than DIVERGE_RADIUS from 0 already diverges, but
+	 * carrying on until it's 256 away makes its smooth iteration count (see
+	 * FractalColors.smoothIteration()) actually smooth.
+	 */
+	private static final double ESCAPE_RADIUS2 = 1 << 16;
 	public abstract Complex ADD();
 	public boolean IS_COMPLEX() {
 		return false;
@@ -23,6 +29,35 @@ public abstract class JuliaSet implements RecursiveFractal {
 	public Complex start(Complex initial) {
 		return initial;
 	}
+	
+	@Override
+	public boolean isStepIndependentOfInitial() {
+		return true;
+	}
+	
+	/**
+	 * A Julia set is connected exactly when ADD() is in the Mandelbrot Set,
+	 * which is checked by iterating it the same way as a pixel of the
+	 * Mandelbrot Set.
+	 */
+	@Override
+	public boolean isConnected() {
+		Complex add = ADD();
+		double x = 0;
+		double y = 0;
+		
+		for (int iteration = 0; iteration < DEFAULT_MAX_ITERATIONS; iteration++) {
+			double nextX = x*x - y*y + add.re();
+			y = 2*x*y + add.im();
+			x = nextX;
+			
+			if (x*x + y*y > 4) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
 
 	@Override
 	public Complex step(Complex c, Complex initial) {
@@ -32,9 +67,55 @@ public abstract class JuliaSet implements RecursiveFractal {
 
 	@Override
 	public boolean diverges(Complex c, int iterations) {
-		return c.r() > DIVERGE_RADIUS;// && Math.abs(c.im()) < DIVERGE_RADIUS;
+		return c.re()*c.re() + c.im()*c.im() > ESCAPE_RADIUS2;// && Math.abs(c.im()) < DIVERGE_RADIUS;
+	}
+	
+	@Override
+	public double getEscapeRadius2() {
+		return ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i) {
+		re[i] = initialRe;
+		im[i] = initialIm;
+	}
+	
+	@Override
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm) {
+		Complex add = ADD();
+		double x = re[i];
+		double y = im[i];
+		
+		re[i] = x*x - y*y + add.re();
+		im[i] = 2*x*y + add.im();
+	}
+	
+	@Override
+	public boolean diverges(double re, double im, int iterations) {
+		return re*re + im*im > ESCAPE_RADIUS2;
 	}
 
+	@Override
+	public Complex getAddend() {
+		return ADD();
+	}
+	
+	@Override
+	public void start(double initialReHi, double initialReLo, double initialImHi, double initialImLo, double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i) {
+		reHi[i] = initialReHi;
+		reLo[i] = initialReLo;
+		imHi[i] = initialImHi;
+		imLo[i] = initialImLo;
+	}
+	
+	@Override
+	public void step(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double initialReHi, double initialReLo, double initialImHi, double initialImLo) {
+		Complex add = ADD();
+		
+		DDMath.squareAdd(reHi, reLo, imHi, imLo, i, add.re(), 0, add.im(), 0);
+	}
+	
 	@Override
 	public String getName() {
 		if (IS_COMPLEX()) {
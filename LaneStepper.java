@@ -0,0 +1,53 @@
+/**
+ * Steps several pixels of a QuadraticFractal at once, one in each lane of a
+ * SIMD register. The results have to be bit for bit the same as stepping each
+ * pixel with QuadraticFractal.step() and testing it with diverges(), so
+ * switching steppers never changes the picture.
+ * 
+ * The only implementation is VectorStepper, which uses the incubating Vector
+ * API. Since that's only there when the JVM is started with
+ * "--add-modules jdk.incubator.vector", it's loaded by name and VECTOR is null
+ * if it can't be, in which case FractalFrame steps one pixel at a time. It can
+ * also be turned off with -Dfractalviewer.simd=false.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public interface LaneStepper {
+	/**
+	 * the vectorized stepper, or null if it isn't available
+	 */
+	public static final LaneStepper VECTOR = load();
+	
+	/**
+	 * @return the number of pixels stepped by each call to step()
+	 */
+	public int getLanes();
+	/**
+	 * Steps pixels active[j] up to active[j + getLanes() - 1] whose bits are
+	 * set in aliveLanes (bit k for active[j + k]). The value of each of them
+	 * that doesn't diverge is then saved into savedRe and savedIm if saveOrbit,
+	 * and otherwise compared to its saved value. The values of the other
+	 * (dead) pixels may be overwritten.
+	 * 
+	 * @param tolerance2 the square of the distance from its saved value a
+	 *                   pixel has to come back within to be interior
+	 * @return the lanes that diverged in the low 32 bits, and the lanes that
+	 *         came back to their saved value in the high 32 bits
+	 */
+	public long step(QuadraticFractal fractal, int[] active, int j, long aliveLanes, double[] re, double[] im, double[] cRe, double[] cIm,
+			double[] savedRe, double[] savedIm, boolean saveOrbit, double tolerance2);
+	
+	private static LaneStepper load() {
+		if (!Boolean.parseBoolean(System.getProperty("fractalviewer.simd", "true"))
+				|| ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return null;
+		}
+		
+		try {
+			return (LaneStepper) Class.forName("VectorStepper").getDeclaredConstructor().newInstance();
+		}catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
@@ -1,13 +1,21 @@
 
+import java.math.MathContext;
+
 /**
  * The classic Mandelbrot Set fractal.  Represented by Z_(n+1) = (Z_n)^2 + C where C is the starting position.
  * 
  * @author Samuel Lieberman
  *
  */
-public class MandelbrotSet implements RecursiveFractal {
+public class MandelbrotSet implements PerturbableFractal, DDFractal, QuadraticFractal {
 	private static final Complex START_POS = new Complex(0, 0);
 	private static final double DIVERGE_RADIUS = 2;
+	/**
+	 * Anything further than DIVERGE_RADIUS from 0 already diverges, but
+	 * carrying on until it's 256 away makes its smooth iteration count (see
+	 * FractalColors.smoothIteration()) actually smooth.
+	 */
+	private static final double ESCAPE_RADIUS2 = 1 << 16;
 	
 	@Override
 	public Complex start(Complex initial) {
@@ -22,7 +30,108 @@ public class MandelbrotSet implements RecursiveFractal {
 
 	@Override
 	public boolean diverges(Complex c, int iterations) {
-		return c.r() > DIVERGE_RADIUS;
+		return c.re()*c.re() + c.im()*c.im() > ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public double getEscapeRadius2() {
+		return ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i) {
+		re[i] = 0;
+		im[i] = 0;
+	}
+	
+	@Override
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm) {
+		double x = re[i];
+		double y = im[i];
+		
+		re[i] = x*x - y*y + initialRe;
+		im[i] = 2*x*y + initialIm;
+	}
+	
+	@Override
+	public boolean diverges(double re, double im, int iterations) {
+		return re*re + im*im > ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public boolean isConnected() {
+		return true;
+	}
+	
+	@Override
+	public Complex getAddend() {
+		return null;
+	}
+	
+	@Override
+	public void start(double initialReHi, double initialReLo, double initialImHi, double initialImLo, double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i) {
+		reHi[i] = 0;
+		reLo[i] = 0;
+		imHi[i] = 0;
+		imLo[i] = 0;
+	}
+	
+	@Override
+	public void step(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double initialReHi, double initialReLo, double initialImHi, double initialImLo) {
+		DDMath.squareAdd(reHi, reLo, imHi, imLo, i, initialReHi, initialReLo, initialImHi, initialImLo);
+	}
+	
+	@Override
+	public BigComplex start(BigComplex initial) {
+		return BigComplex.ZERO;
+	}
+	
+	@Override
+	public BigComplex step(BigComplex c, BigComplex initial, MathContext mc) {
+		return c.square(mc).add(initial, mc);
+	}
+	
+	@Override
+	public void startDelta(double initialDeltaRe, double initialDeltaIm, double[] deltaRe, double[] deltaIm, int i) {
+		deltaRe[i] = 0;
+		deltaIm[i] = 0;
+	}
+	
+	/**
+	 * delta_n+1 = (2*Z_n + delta_n)*delta_n + delta_C
+	 */
+	@Override
+	public void stepDelta(double[] deltaRe, double[] deltaIm, int i, double referenceRe, double referenceIm, double initialDeltaRe, double initialDeltaIm) {
+		double x = deltaRe[i];
+		double y = deltaIm[i];
+		double sumRe = 2*referenceRe + x;
+		double sumIm = 2*referenceIm + y;
+		
+		deltaRe[i] = sumRe*x - sumIm*y + initialDeltaRe;
+		deltaIm[i] = sumRe*y + sumIm*x + initialDeltaIm;
+	}
+
+	@Override
+	public SeriesApproximation approximate(ReferenceOrbit reference, double radius, double spacing) {
+		return new SeriesApproximation(this, reference, radius, spacing);
+	}
+	
+	/**
+	 * Checks whether the point is in the main cardioid or the period 2 bulb,
+	 * which make up most of the inside of the Mandelbrot Set.
+	 */
+	@Override
+	public boolean isInterior(double initialRe, double initialIm) {
+		double y2 = initialIm*initialIm;
+		
+		double xShifted = initialRe - 0.25;
+		double q = xShifted*xShifted + y2;
+		if (q*(q + xShifted) <= y2/4) {
+			return true;
+		}
+		
+		double xBulb = initialRe + 1;
+		return xBulb*xBulb + y2 <= 1.0/16;
 	}
 
 	@Override
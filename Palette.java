@@ -0,0 +1,104 @@
+import java.awt.Color;
+
+/**
+ * A gradient escaped pixels are colored from. The colors given to it are
+ * blended into each other, the last one back into the first, and looked up
+ * from a table of GRADIENT_SIZE ARGB values, so coloring a pixel is a single
+ * array read.
+ * 
+ * A palette only decides colors. The escape iterations it colors are kept
+ * separately, so switching palettes never means calculating anything again.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class Palette {
+	/**
+	 * the number of colors in each gradient, which has to be a power of two
+	 */
+	public static final int GRADIENT_SIZE = 4096;
+	
+	/**
+	 * the colors fractals have always been drawn with, switching every 2
+	 * iterations
+	 */
+	public static final Palette CLASSIC = new Palette("Classic", 12,
+			new Color(255, 0, 0),
+			new Color(255, 255, 0),
+			new Color(0, 255, 127),
+			new Color(0, 127, 127),
+			new Color(0, 0, 255),
+			new Color(127, 0, 127));
+	public static final Palette FIRE = new Palette("Fire", 32,
+			new Color(0, 0, 0),
+			new Color(127, 0, 0),
+			new Color(255, 63, 0),
+			new Color(255, 191, 0),
+			new Color(255, 255, 191));
+	public static final Palette OCEAN = new Palette("Ocean", 24,
+			new Color(0, 7, 100),
+			new Color(32, 107, 203),
+			new Color(237, 255, 255),
+			new Color(255, 170, 0),
+			new Color(0, 2, 0));
+	public static final Palette GRAYSCALE = new Palette("Grayscale", 16,
+			new Color(0, 0, 0),
+			new Color(255, 255, 255));
+	/**
+	 * every palette, in the order they're switched between
+	 */
+	public static final Palette[] PALETTES = {CLASSIC, FIRE, OCEAN, GRAYSCALE};
+	
+	private String name;
+	private double cyclesPerIteration;
+	private int[] gradient;
+	
+	/**
+	 * @param iterationsPerCycle the number of iterations it takes to go
+	 *                           through every color once
+	 */
+	public Palette(String name, double iterationsPerCycle, Color... colors) {
+		this.name = name;
+		cyclesPerIteration = 1/iterationsPerCycle;
+		gradient = new int[GRADIENT_SIZE];
+		
+		for (int i = 0; i < GRADIENT_SIZE; i++) {
+			double position = (double) i*colors.length/GRADIENT_SIZE;
+			int color = (int) position;
+			
+			gradient[i] = blend(colors[color], colors[(color + 1)%colors.length], position - color);
+		}
+	}
+	
+	/**
+	 * @param position how far through the gradient, where every whole number
+	 *                 is the start of it again
+	 * @return the ARGB value at that position
+	 */
+	public int argbAt(double position) {
+		return gradient[(int) ((long) Math.floor(position*GRADIENT_SIZE) & (GRADIENT_SIZE - 1))];
+	}
+	/**
+	 * @return how far through the gradient each iteration moves, where going
+	 *         through it once is 1
+	 */
+	public double getCyclesPerIteration() {
+		return cyclesPerIteration;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @param fraction how far from a to b, from 0 to 1
+	 * @return the ARGB value between a and b
+	 */
+	private static int blend(Color a, Color b, double fraction) {
+		int red = (int) Math.round(a.getRed() + (b.getRed() - a.getRed())*fraction);
+		int green = (int) Math.round(a.getGreen() + (b.getGreen() - a.getGreen())*fraction);
+		int blue = (int) Math.round(a.getBlue() + (b.getBlue() - a.getBlue())*fraction);
+		
+		return 0xff000000 | red << 16 | green << 8 | blue;
+	}
+}
@@ -0,0 +1,47 @@
+import java.math.MathContext;
+
+/**
+ * A PrimitiveFractal that can be zoomed in further than a double can resolve,
+ * using perturbation theory. One reference orbit, Z_n, is calculated at high
+ * precision for a point near the view, and every pixel is then iterated as a
+ * small double precision difference (delta) from it: z_n = Z_n + delta_n.
+ * Deltas only need to be as precise as the spacing between pixels, not as
+ * precise as the position of the pixels.
+ * 
+ * See ReferenceOrbit and PerturbationFrame, which do the iterating.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public interface PerturbableFractal extends PrimitiveFractal {
+	/**
+	 * Equivalent to start(Complex), at high precision.
+	 */
+	public BigComplex start(BigComplex initial);
+	/**
+	 * Equivalent to step(Complex, Complex), at high precision.
+	 */
+	public BigComplex step(BigComplex c, BigComplex initial, MathContext mc);
+	/**
+	 * Writes the starting delta of a point initialDeltaRe + initialDeltaIm*i
+	 * away from the reference's starting point into deltaRe[i] and
+	 * deltaIm[i].
+	 */
+	public void startDelta(double initialDeltaRe, double initialDeltaIm, double[] deltaRe, double[] deltaIm, int i);
+	/**
+	 * Replaces the delta in deltaRe[i] and deltaIm[i] with the next one, given
+	 * the value of the reference orbit it's a delta from.
+	 */
+	public void stepDelta(double[] deltaRe, double[] deltaIm, int i, double referenceRe, double referenceIm, double initialDeltaRe, double initialDeltaIm);
+	/**
+	 * Works out how many iterations every pixel of a frame can skip at once,
+	 * if the fractal has a way to.
+	 * 
+	 * @param radius  the largest initial delta of any pixel in the frame
+	 * @param spacing the distance between pixels
+	 * @return the approximation, or null if there's no way to skip iterations
+	 */
+	public default SeriesApproximation approximate(ReferenceOrbit reference, double radius, double spacing) {
+		return null;
+	}
+}
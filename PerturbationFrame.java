@@ -0,0 +1,287 @@
+import java.util.Arrays;
+
+/**
+ * A frame of a PerturbableFractal iterated with perturbation theory, for
+ * zooms too deep for FractalFrame's doubles. Each pixel only stores its
+ * offset from the ReferenceOrbit's starting point (initialDelta) and the
+ * difference between its own orbit and the reference orbit (delta), both of
+ * which are tiny numbers a double has no trouble with however deep the zoom.
+ * 
+ * Each pixel also keeps its own index into the reference orbit. Whenever a
+ * pixel's orbit gets closer to 0 than to the reference orbit, its delta would
+ * start losing precision (the usual cause of "glitches"), so the pixel is
+ * rebased: its full value becomes its delta against the start of the
+ * reference orbit, and it carries on from there. The same happens when a
+ * pixel reaches the end of a reference orbit that diverged. Because of this,
+ * one reference orbit is enough for the whole frame, wherever it is.
+ * 
+ * If the fractal has a SeriesApproximation, every pixel skips ahead to where
+ * the approximation stops being accurate as soon as the frame is initialized,
+ * and starts being iterated from there.
+ * 
+ * Pixels are split into tiles of FractalFrame.TILE_SIZE pixels with compacted
+ * active lists just like in FractalFrame, so tiles can be iterated on
+ * different threads at the same time.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class PerturbationFrame {
+	private static final int TILE_SIZE = FractalFrame.TILE_SIZE;
+	private static final int COMPACT_RATIO = 4;
+	
+	private int width;
+	private int height;
+	
+	private double[] deltaRe;
+	private double[] deltaIm;
+	private double[] initialDeltaRe;
+	private double[] initialDeltaIm;
+	private int[] referenceIter;
+	private int[] escapeIter;
+	private float[] escapeR2;
+	private long[] alive;
+	private FrameBuffer image;
+	
+	private PerturbableFractal kernel;
+	private ReferenceOrbit reference;
+	private int skippedIterations;
+	
+	//the alive pixels of tile t are active[t*TILE_SIZE] up to active[t*TILE_SIZE + activeCount[t]]
+	private int[] active;
+	private int[] activeCount;
+	private int[] escapedCount;
+	
+	public PerturbationFrame() {
+		resize(0, 0);
+	}
+	
+	/**
+	 * Changes the number of pixels in this frame. Does nothing if the size is
+	 * unchanged, so the existing arrays get reused.
+	 * 
+	 * @return true if the arrays had to be reallocated
+	 */
+	public boolean resize(int width, int height) {
+		if (deltaRe != null && width == this.width && height == this.height) {
+			return false;
+		}
+		
+		this.width = width;
+		this.height = height;
+		
+		int size = width*height;
+		deltaRe = new double[size];
+		deltaIm = new double[size];
+		initialDeltaRe = new double[size];
+		initialDeltaIm = new double[size];
+		referenceIter = new int[size];
+		escapeIter = new int[size];
+		escapeR2 = new float[size];
+		alive = new long[(size + 63) >>> 6];
+		active = new int[size];
+		activeCount = new int[getTileCount()];
+		escapedCount = new int[getTileCount()];
+		
+		return true;
+	}
+	
+	/**
+	 * Sets the image the color of each pixel is written into.
+	 * 
+	 * @param image an image the same size as this frame, or null
+	 */
+	public void setImage(FrameBuffer image) {
+		this.image = image;
+	}
+	
+	/**
+	 * Resets every pixel to the start of its orbit, or to as far along it as
+	 * the series approximation can skip. Pixel (x, y) is placed at
+	 * topLeftRe + x*spacing + (topLeftIm + y*spacing)*i away from the starting
+	 * point of reference.
+	 */
+	public void init(PerturbableFractal kernel, ReferenceOrbit reference, double topLeftRe, double topLeftIm, double spacing) {
+		this.kernel = kernel;
+		this.reference = reference;
+		
+		Arrays.fill(alive, 0);
+		for (int y = 0; y < height; y++) {
+			double offsetIm = topLeftIm + y*spacing;
+			int row = y*width;
+			
+			for (int x = 0; x < width; x++) {
+				int i = row + x;
+				
+				initialDeltaRe[i] = topLeftRe + x*spacing;
+				initialDeltaIm[i] = offsetIm;
+				kernel.startDelta(initialDeltaRe[i], initialDeltaIm[i], deltaRe, deltaIm, i);
+				referenceIter[i] = 0;
+				escapeIter[i] = FractalFrame.NOT_ESCAPED;
+				alive[i >>> 6] |= 1L << i;
+			}
+		}
+		
+		double radius = Math.hypot(Math.max(Math.abs(topLeftRe), Math.abs(topLeftRe + (width - 1)*spacing)),
+				Math.max(Math.abs(topLeftIm), Math.abs(topLeftIm + (height - 1)*spacing)));
+		SeriesApproximation series = radius > 0 ? kernel.approximate(reference, radius, spacing) : null;
+		skippedIterations = series == null ? 0 : series.getIterations();
+		
+		if (skippedIterations > 0) {
+			for (int i = 0; i < width*height; i++) {
+				series.evaluate(initialDeltaRe[i], initialDeltaIm[i], deltaRe, deltaIm, i);
+				referenceIter[i] = skippedIterations;
+			}
+		}
+		
+		if (image != null) {
+			image.fill(FractalColors.argbOf(FractalFrame.NOT_ESCAPED));
+		}
+		
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			int start = tile*TILE_SIZE;
+			int end = Math.min(start + TILE_SIZE, width*height);
+			
+			for (int i = start; i < end; i++) {
+				active[i] = i;
+			}
+			activeCount[tile] = end - start;
+			escapedCount[tile] = 0;
+		}
+	}
+	
+	/**
+	 * Makes sure the reference orbit is long enough for the given iteration.
+	 * Has to be called before the tiles of each iteration are iterated.
+	 */
+	public void prepare(int iteration) {
+		reference.extendTo(iteration);
+	}
+	/**
+	 * Steps every pixel that's still alive once, marking the ones that diverge
+	 * with the given iteration.
+	 */
+	public void iterate(int iteration) {
+		prepare(iteration);
+		for (int tile = 0; tile < getTileCount(); tile++) {
+			iterateTile(iteration, tile);
+		}
+	}
+	/**
+	 * Same as iterate(), but only for the pixels in the given tile, and
+	 * prepare() has to have been called first. Different tiles can safely be
+	 * iterated at the same time.
+	 */
+	public void iterateTile(int iteration, int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int escaped = escapedCount[tile];
+		//the last value of a diverged reference orbit can't be stepped from
+		int lastReferenceIter = reference.hasDiverged() ? reference.getLength() - 1 : Integer.MAX_VALUE;
+		double startRe = reference.getRe(0);
+		double startIm = reference.getIm(0);
+		
+		for (int j = start; j < end; j++) {
+			int i = active[j];
+			
+			if ((alive[i >>> 6] & (1L << i)) != 0) {
+				int n = referenceIter[i];
+				kernel.stepDelta(deltaRe, deltaIm, i, reference.getRe(n), reference.getIm(n), initialDeltaRe[i], initialDeltaIm[i]);
+				n++;
+				
+				double dRe = deltaRe[i];
+				double dIm = deltaIm[i];
+				double valueRe = reference.getRe(n) + dRe;
+				double valueIm = reference.getIm(n) + dIm;
+				
+				if (kernel.diverges(valueRe, valueIm, iteration)) {
+					escapeIter[i] = iteration;
+					escapeR2[i] = (float) (valueRe*valueRe + valueIm*valueIm);
+					alive[i >>> 6] &= ~(1L << i);
+					escaped++;
+					
+					if (image != null) {
+						image.set(i, FractalColors.argbOf(kernel, iteration, escapeR2[i]));
+					}
+				}else if (valueRe*valueRe + valueIm*valueIm < dRe*dRe + dIm*dIm || n == lastReferenceIter) {
+					deltaRe[i] = valueRe - startRe;
+					deltaIm[i] = valueIm - startIm;
+					n = 0;
+				}
+				
+				referenceIter[i] = n;
+			}
+		}
+		
+		escapedCount[tile] = escaped;
+		if (escaped*COMPACT_RATIO > activeCount[tile]) {
+			compactTile(tile);
+		}
+	}
+	/**
+	 * Removes every pixel that isn't alive anymore from the tile's active list,
+	 * keeping the rest in order.
+	 */
+	private void compactTile(int tile) {
+		int start = tile*TILE_SIZE;
+		int end = start + activeCount[tile];
+		int kept = start;
+		
+		for (int j = start; j < end; j++) {
+			int i = active[j];
+			
+			if ((alive[i >>> 6] & (1L << i)) != 0) {
+				active[kept] = i;
+				kept++;
+			}
+		}
+		
+		activeCount[tile] = kept - start;
+		escapedCount[tile] = 0;
+	}
+	
+	/**
+	 * @return the number of iterations init() skipped, which is the iteration
+	 *         every pixel starts at
+	 */
+	public int getSkippedIterations() {
+		return skippedIterations;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getTileCount() {
+		return (width*height + TILE_SIZE - 1)/TILE_SIZE;
+	}
+	
+	/**
+	 * @return the number of pixels that are still being iterated
+	 */
+	public int getAliveCount() {
+		int count = 0;
+		for (int tile = 0; tile < activeCount.length; tile++) {
+			count += activeCount[tile] - escapedCount[tile];
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return the iteration each pixel escaped at, or NOT_ESCAPED, indexed by
+	 *         y*width + x
+	 */
+	public int[] getEscapeIterations() {
+		return escapeIter;
+	}
+	/**
+	 * @return the square of the size of each escaped pixel at the iteration
+	 *         it escaped at, indexed by y*width + x
+	 */
+	public float[] getEscapeR2() {
+		return escapeR2;
+	}
+}
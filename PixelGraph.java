@@ -0,0 +1,340 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * The pixels of a frame of a fractal whose step doesn't depend on the starting
+ * point, like a Julia set, where every point's orbit is the same as the orbit
+ * of any point it passes through. As soon as a pixel's orbit lands on another
+ * pixel, the pixel stops being iterated and follows that pixel instead, so it
+ * ends up with the same result. This is what makes FractalViewer2 fast.
+ * 
+ * The pixels that follow each other form a forest, stored like a union-find:
+ * target[i] is the pixel that pixel i follows, or i itself if i is a root and
+ * is still being iterated on its own. Only roots are ever stepped, and the
+ * result of any pixel is the result of its root. Finding the root halves the
+ * path to it as it goes, so chains of pixels stay short however long the
+ * orbits get. If a pixel's orbit lands on a pixel whose root is the pixel
+ * itself, its orbit has come back around, so it's INTERIOR.
+ * 
+ * The pixels are split into tiles of TILE_SIZE consecutive pixels which can be
+ * iterated on different threads at the same time, even though following can
+ * link pixels in different tiles. target is only ever changed with
+ * compareAndSet(): path halving only changes pixels that aren't roots, and
+ * linking a root to another locks both roots first (by setting their target
+ * to LOCKED), lowest index first so two threads can't wait on each other. A
+ * root is only linked while both are still roots, which keeps cycles out of
+ * the forest.
+ * 
+ * Sharing orbits only works if the fractal's step doesn't depend on the
+ * starting point, so for any other fractal (see
+ * RecursiveFractal.isStepIndependentOfInitial()) nothing is ever linked, and
+ * every pixel is iterated on its own until it diverges, like in a
+ * FractalFrame.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class PixelGraph {
+	/**
+	 * number of pixels in each tile
+	 */
+	public static final int TILE_SIZE = 1024;
+	/**
+	 * color of a pixel whose result isn't known yet
+	 */
+	public static final int UNCERTAIN_ARGB = 0xff323232;
+	
+	//target of a root that's being linked
+	private static final int LOCKED = -1;
+	private static final VarHandle TARGET = MethodHandles.arrayElementVarHandle(int[].class);
+	
+	private int width;
+	private int height;
+	private double topLeftRe;
+	private double topLeftIm;
+	private double spacing;
+	//whether pixels follow the pixels their orbits land on
+	private boolean sharing;
+	//the kernel the pixels were started with, which colors them
+	private PrimitiveFractal kernel;
+	
+	private double[] re;
+	private double[] im;
+	private int[] target;
+	//the results of roots. Other pixels take the result of their root.
+	private int[] escapeIter;
+	//the square of the size of each escaped root at the iteration it escaped at
+	private float[] escapeR2;
+	private FrameBuffer image;
+	//the number of roots in each tile still without a result, as of its last iteration
+	private int[] pendingCount;
+	
+	public PixelGraph() {
+		resize(0, 0);
+	}
+	
+	/**
+	 * Changes the number of pixels in this graph. Does nothing if the size is
+	 * unchanged, so the existing arrays get reused.
+	 */
+	public void resize(int width, int height) {
+		if (re != null && width == this.width && height == this.height) {
+			return;
+		}
+		
+		this.width = width;
+		this.height = height;
+		
+		int size = width*height;
+		re = new double[size];
+		im = new double[size];
+		target = new int[size];
+		escapeIter = new int[size];
+		escapeR2 = new float[size];
+		pendingCount = new int[getTileCount()];
+	}
+	/**
+	 * Sets the image the color of each pixel is written into by paintTile().
+	 * 
+	 * @param image an image the same size as this graph, or null
+	 */
+	public void setImage(FrameBuffer image) {
+		this.image = image;
+	}
+	
+	/**
+	 * Makes every pixel a root at the start of its orbit. Pixel (x, y) is
+	 * placed at topLeftRe + x*spacing + (topLeftIm + y*spacing)*i. Orbits are
+	 * only shared if kernel.isStepIndependentOfInitial(), and pixels the
+	 * kernel already knows are inside the fractal are marked INTERIOR right
+	 * away.
+	 */
+	public void init(PrimitiveFractal kernel, double topLeftRe, double topLeftIm, double spacing) {
+		this.topLeftRe = topLeftRe;
+		this.topLeftIm = topLeftIm;
+		this.spacing = spacing;
+		this.kernel = kernel;
+		sharing = kernel.isStepIndependentOfInitial();
+		
+		for (int y = 0; y < height; y++) {
+			double positionIm = topLeftIm + y*spacing;
+			
+			for (int x = 0; x < width; x++) {
+				int i = y*width + x;
+				double positionRe = topLeftRe + x*spacing;
+				
+				kernel.start(positionRe, positionIm, re, im, i);
+				target[i] = i;
+				escapeIter[i] = kernel.isInterior(positionRe, positionIm) ? FractalFrame.INTERIOR : FractalFrame.NOT_ESCAPED;
+			}
+		}
+		Arrays.fill(pendingCount, TILE_SIZE);
+	}
+	/**
+	 * Gives pixels a result without calculating them, for pixels that were
+	 * saved earlier. Should only be called after init() and before the first
+	 * iteration, while every pixel is still a root.
+	 * 
+	 * @param escapes  an escape iteration for each pixel, indexed by
+	 *                 y*width + x. NOT_ESCAPED pixels are left alone.
+	 * @param escapeR2 the square of the size of each of those pixels at its
+	 *                 escape iteration, or NaN where it isn't known
+	 */
+	public void markFinished(int[] escapes, float[] escapeR2) {
+		for (int i = 0; i < width*height; i++) {
+			if (escapes[i] != FractalFrame.NOT_ESCAPED) {
+				escapeIter[i] = escapes[i];
+				this.escapeR2[i] = escapeR2[i];
+			}
+		}
+	}
+	
+	/**
+	 * Steps every root in a tile that doesn't have a result yet. Roots that
+	 * escape get iteration as their result, and if orbits are shared, roots
+	 * that land on another pixel follow it from now on. Can be called for
+	 * different tiles on different threads at the same time. Tiles without any
+	 * roots left to step are skipped.
+	 */
+	public void iterateTile(PrimitiveFractal kernel, int iteration, int tile) {
+		if (pendingCount[tile] == 0) {
+			return;
+		}
+		
+		int start = tile*TILE_SIZE;
+		int end = Math.min(start + TILE_SIZE, width*height);
+		int pending = 0;
+		
+		for (int i = start; i < end; i++) {
+			if (escapeIter[i] != FractalFrame.NOT_ESCAPED || !isRoot(i)) {
+				continue;
+			}
+			
+			kernel.step(re, im, i, topLeftRe + (i%width)*spacing, topLeftIm + (i/width)*spacing);
+			
+			double pixX = Math.floor((re[i] - topLeftRe)/spacing);
+			double pixY = Math.floor((im[i] - topLeftIm)/spacing);
+			if (sharing && pixX >= 0 && pixY >= 0 && pixX < width && pixY < height) {
+				if (!link(i, (int) pixY*width + (int) pixX)) {
+					escapeIter[i] = FractalFrame.INTERIOR;
+				}
+			}else if (kernel.diverges(re[i], im[i], iteration)) {
+				escapeIter[i] = iteration;
+				escapeR2[i] = (float) (re[i]*re[i] + im[i]*im[i]);
+			}else {
+				pending++;
+			}
+		}
+		
+		pendingCount[tile] = pending;
+	}
+	/**
+	 * Writes the color of every pixel in a tile into the image. Must not be
+	 * called while any tile is being iterated.
+	 */
+	public void paintTile(int tile) {
+		paintTile(tile, UNCERTAIN_ARGB);
+	}
+	/**
+	 * Same as paintTile(), except pixels without a result are painted
+	 * uncertainArgb, like once the iteration budget is used up and they're
+	 * taken to be inside the fractal.
+	 */
+	public void paintTile(int tile, int uncertainArgb) {
+		if (image == null) {
+			return;
+		}
+		
+		int start = tile*TILE_SIZE;
+		int end = Math.min(start + TILE_SIZE, width*height);
+		
+		for (int i = start; i < end; i++) {
+			int root = find(i);
+			int escape = escapeIter[root];
+			image.set(i, escape == FractalFrame.NOT_ESCAPED ? uncertainArgb : FractalColors.argbOf(kernel, escape, escapeR2[root]));
+		}
+	}
+	
+	/**
+	 * Makes root i follow the root of pixel hit, unless that's i itself.
+	 * 
+	 * @return false if the root of hit is i
+	 */
+	private boolean link(int i, int hit) {
+		while (true) {
+			int root = find(hit);
+			if (root == i) {
+				return false;
+			}
+			
+			int first = Math.min(i, root);
+			int second = Math.max(i, root);
+			if (lock(first)) {
+				if (lock(second)) {
+					TARGET.setVolatile(target, i, root);
+					TARGET.setVolatile(target, root, root);
+					return true;
+				}
+				
+				TARGET.setVolatile(target, first, first);
+			}
+			//the root was linked to something else in the meantime
+		}
+	}
+	/**
+	 * Locks root i so it can't be linked to anything else, waiting for any
+	 * other thread that has it locked.
+	 * 
+	 * @return false if i stopped being a root first
+	 */
+	private boolean lock(int i) {
+		while (true) {
+			int next = (int) TARGET.getVolatile(target, i);
+			if (next == LOCKED) {
+				Thread.onSpinWait();
+			}else if (next != i) {
+				return false;
+			}else if (TARGET.compareAndSet(target, i, i, LOCKED)) {
+				return true;
+			}
+		}
+	}
+	/**
+	 * @return the root of pixel i, halving the path to it along the way
+	 */
+	private int find(int i) {
+		while (true) {
+			int next = (int) TARGET.getVolatile(target, i);
+			if (next == i || next == LOCKED) {
+				return i;
+			}
+			
+			int afterNext = (int) TARGET.getVolatile(target, next);
+			if (afterNext == next || afterNext == LOCKED) {
+				return next;
+			}
+			
+			TARGET.compareAndSet(target, i, next, afterNext);
+			i = afterNext;
+		}
+	}
+	private boolean isRoot(int i) {
+		int next = (int) TARGET.getVolatile(target, i);
+		return next == i || next == LOCKED;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	public int getHeight() {
+		return height;
+	}
+	public int getTileCount() {
+		return (width*height + TILE_SIZE - 1)/TILE_SIZE;
+	}
+	/**
+	 * @return the number of roots that were still being stepped after the
+	 *         last iteration. Once it's 0, iterating doesn't change anything.
+	 */
+	public int getPendingCount() {
+		int count = 0;
+		for (int pending:pendingCount) {
+			count += pending;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * @return the iteration pixel i escaped at, or NOT_ESCAPED or INTERIOR like
+	 *         in FractalFrame, which is the result of its root
+	 */
+	public int getEscapeIteration(int i) {
+		return escapeIter[find(i)];
+	}
+	/**
+	 * @return the escape iteration of every pixel, indexed by y*width + x
+	 */
+	public int[] getEscapeIterations() {
+		int[] escapes = new int[width*height];
+		for (int i = 0; i < escapes.length; i++) {
+			escapes[i] = getEscapeIteration(i);
+		}
+		
+		return escapes;
+	}
+	/**
+	 * @return the square of the size of every escaped pixel at the iteration
+	 *         it escaped at, which is that of its root, or NaN if it isn't
+	 *         known, indexed by y*width + x
+	 */
+	public float[] getEscapeR2() {
+		float[] r2 = new float[width*height];
+		for (int i = 0; i < r2.length; i++) {
+			r2[i] = escapeR2[find(i)];
+		}
+
+		return r2;
+	}
+}
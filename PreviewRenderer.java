@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shows a rough version of a FractalFrame right away, while it's still at
+ * its first iteration. Only every level-th pixel in each direction (a sample)
+ * is calculated, to a small number of iterations, and its color is spread
+ * over the level by level block of pixels next to it. Each level in LEVELS is
+ * half the size of the one before, so the picture gets sharper as it goes,
+ * and every sample of a level is also a sample of all the finer levels, so
+ * it's only ever calculated once.
+ * 
+ * Samples are calculated with FractalFrame.escapeIteration(), so the ones
+ * that escape or are found INTERIOR have exactly their final result, and
+ * finish() marks them as finished in the frame instead of throwing them away.
+ * The blocks are only painted over pixels that are still alive, which keep
+ * their block color until resetAliveColors() is called on the frame.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class PreviewRenderer {
+	/**
+	 * the size of the blocks of each level, in frame pixels, from coarsest to
+	 * finest
+	 */
+	public static final int[] LEVELS = {16, 8, 4, 2};
+	
+	//result of a pixel that hasn't been calculated yet
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	
+	private TileScheduler scheduler;
+	
+	private FractalFrame frame;
+	private PrimitiveFractal kernel;
+	private int maxIterations;
+	private int[] results;
+	private float[] resultR2;
+	private AtomicInteger calculated;
+	
+	public PreviewRenderer(TileScheduler scheduler) {
+		this.scheduler = scheduler;
+		calculated = new AtomicInteger();
+	}
+	
+	/**
+	 * Starts a preview of frame, which should have just been placed by init()
+	 * or reproject(). Pixels that are already finished are used as samples
+	 * without calculating them.
+	 * 
+	 * @param maxIterations the most iterations each sample is calculated to
+	 */
+	public void start(FractalFrame frame, PrimitiveFractal kernel, int maxIterations) {
+		this.frame = frame;
+		this.kernel = kernel;
+		this.maxIterations = maxIterations;
+		
+		results = frame.getEscapeIterations().clone();
+		resultR2 = frame.getEscapeR2().clone();
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == FractalFrame.NOT_ESCAPED) {
+				results[i] = UNKNOWN;
+			}
+		}
+		calculated.set(0);
+	}
+	/**
+	 * Calculates every sample of one level that isn't known yet and paints its
+	 * block into the frame's image. The rows of blocks are done on different
+	 * threads.
+	 * 
+	 * @param level the size of the blocks, which should be one of LEVELS, in
+	 *              order
+	 * @return false if job was cancelled before every block was done
+	 */
+	public boolean render(int level, RenderJob job) {
+		int width = frame.getWidth();
+		int height = frame.getHeight();
+		int[] escapes = frame.getEscapeIterations();
+		FrameBuffer image = frame.getImage();
+		
+		return scheduler.run((height + level - 1)/level, blockRow -> {
+			int y0 = blockRow*level;
+			int y1 = Math.min(y0 + level, height);
+			
+			for (int x0 = 0; x0 < width; x0 += level) {
+				int sample = y0*width + x0;
+				if (results[sample] == UNKNOWN) {
+					results[sample] = frame.escapeIteration(kernel, sample, maxIterations, resultR2);
+					calculated.incrementAndGet();
+				}
+				if (image == null) {
+					continue;
+				}
+				
+				int argb = FractalColors.argbOf(kernel, results[sample], resultR2[sample]);
+				int x1 = Math.min(x0 + level, width);
+				for (int y = y0; y < y1; y++) {
+					for (int x = x0; x < x1; x++) {
+						if (escapes[y*width + x] == FractalFrame.NOT_ESCAPED) {
+							image.set(y*width + x, argb);
+						}
+					}
+				}
+			}
+		}, job);
+	}
+	/**
+	 * Marks every sample that escaped or was found INTERIOR as finished in
+	 * the frame, which can then be iterated as usual.
+	 * 
+	 * @return the number of samples that had to be calculated
+	 */
+	public int finish() {
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == UNKNOWN) {
+				results[i] = FractalFrame.NOT_ESCAPED;
+			}
+		}
+		frame.markFinished(results, resultR2);
+		
+		frame = null;
+		results = null;
+		resultR2 = null;
+		
+		return calculated.get();
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Lets a RecursiveFractal that only implements the Complex methods be used
+ * wherever a PrimitiveFractal is expected. Every step is boxed into Complex
+ * objects, so this is only as fast as the original fractal.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class PrimitiveAdapter implements PrimitiveFractal {
+	private RecursiveFractal fractal;
+	
+	private PrimitiveAdapter(RecursiveFractal fractal) {
+		this.fractal = fractal;
+	}
+	
+	/**
+	 * @return fractal itself if it already supports primitive iteration,
+	 *         otherwise an adapter around it
+	 */
+	public static PrimitiveFractal of(RecursiveFractal fractal) {
+		if (fractal instanceof PrimitiveFractal) {
+			return (PrimitiveFractal) fractal;
+		}else {
+			return new PrimitiveAdapter(fractal);
+		}
+	}
+	
+	private static Complex box(double re, double im) {
+		return new Complex(re, im, ImMath.coordinateSystem.CARTISAN);
+	}
+	
+	@Override
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i) {
+		Complex value = fractal.start(box(initialRe, initialIm));
+		re[i] = value.re();
+		im[i] = value.im();
+	}
+
+	@Override
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm) {
+		Complex value = fractal.step(box(re[i], im[i]), box(initialRe, initialIm));
+		re[i] = value.re();
+		im[i] = value.im();
+	}
+
+	@Override
+	public boolean diverges(double re, double im, int iterations) {
+		return fractal.diverges(box(re, im), iterations);
+	}
+
+	@Override
+	public Complex start(Complex initial) {
+		return fractal.start(initial);
+	}
+
+	@Override
+	public Complex step(Complex c, Complex initial) {
+		return fractal.step(c, initial);
+	}
+
+	@Override
+	public boolean diverges(Complex c, int iterations) {
+		return fractal.diverges(c, iterations);
+	}
+
+	@Override
+	public double getEscapeRadius2() {
+		return fractal.getEscapeRadius2();
+	}
+
+	@Override
+	public boolean escapesInward() {
+		return fractal.escapesInward();
+	}
+
+	@Override
+	public double getDegree() {
+		return fractal.getDegree();
+	}
+
+	@Override
+	public String getName() {
+		return fractal.getName();
+	}
+
+	@Override
+	public String getFormula() {
+		return fractal.getFormula();
+	}
+
+	@Override
+	public Complex getInitialScreenCenter() {
+		return fractal.getInitialScreenCenter();
+	}
+
+	@Override
+	public double getInitialScreenDiameter() {
+		return fractal.getInitialScreenDiameter();
+	}
+	
+	@Override
+	public int getMaxIterations() {
+		return fractal.getMaxIterations();
+	}
+
+	@Override
+	public boolean isStepIndependentOfInitial() {
+		return fractal.isStepIndependentOfInitial();
+	}
+}
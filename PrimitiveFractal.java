@@ -0,0 +1,39 @@
+/**
+ * A RecursiveFractal that can also be iterated on raw doubles instead of
+ * Complex objects. Values are stored in a pair of double[] buffers (one for the
+ * real parts, one for the imaginary parts) and are updated in place, so
+ * iterating a pixel doesn't create any garbage.
+ * 
+ * The viewers use these methods whenever a fractal implements this interface,
+ * and fall back to the Complex methods (through PrimitiveAdapter) otherwise.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public interface PrimitiveFractal extends RecursiveFractal {
+	/**
+	 * Writes the starting value for the point initialRe + initialIm*i into re[i]
+	 * and im[i]. Equivalent to start(Complex).
+	 */
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i);
+	/**
+	 * Replaces re[i] + im[i]*i with the next value in its orbit. Equivalent to
+	 * step(Complex, Complex).
+	 */
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm);
+	/**
+	 * Equivalent to diverges(Complex, int).
+	 */
+	public boolean diverges(double re, double im, int iterations);
+	/**
+	 * A quick test for points that are known to be inside the fractal without
+	 * iterating them, such as the main cardioid of the Mandelbrot Set. Returns
+	 * false unless a fractal overrides it with such a test.
+	 * 
+	 * @return true only if the orbit starting at initialRe + initialIm*i never
+	 *         diverges
+	 */
+	public default boolean isInterior(double initialRe, double initialIm) {
+		return false;
+	}
+}
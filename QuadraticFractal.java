@@ -0,0 +1,19 @@
+/**
+ * A PrimitiveFractal iterated by Z_(n+1) = (Z_n)^2 + A, where A is either the
+ * starting position of each point (like the Mandelbrot Set) or one constant
+ * for every point (like a Julia set), and points diverge once they're further
+ * than getEscapeRadius2() from 0, which must be the same test diverges() uses.
+ * 
+ * Knowing the exact formula lets FractalFrame step several of these pixels at
+ * once with a LaneStepper instead of one at a time through step().
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public interface QuadraticFractal extends PrimitiveFractal {
+	/**
+	 * @return the constant added to every square, or null if the starting
+	 *         position of each point is added instead
+	 */
+	public Complex getAddend();
+}
@@ -1,11 +1,89 @@
 public interface RecursiveFractal {
+	/**
+	 * the number of iterations views are calculated to unless a fractal says
+	 * otherwise
+	 */
+	public static final int DEFAULT_MAX_ITERATIONS = 1024;
+	/**
+	 * the number of times a view has to be zoomed in by 2 for its budget to
+	 * grow by another getMaxIterations()
+	 */
+	public static final double ZOOMS_PER_BUDGET = 4;
+	
 	public Complex start(Complex initial);
 	public Complex step(Complex c, Complex initial);
+	/**
+	 * Should compare the square of the size of c to getEscapeRadius2(), so
+	 * it doesn't need a square root.
+	 */
 	public boolean diverges(Complex c, int iterations);
+	/**
+	 * @return the square of the distance from 0 past which a point diverges
+	 *         (or, if escapesInward(), within which it does)
+	 */
+	public double getEscapeRadius2();
+	/**
+	 * @return whether points diverge by getting closer to 0 than the escape
+	 *         radius, instead of further from it
+	 */
+	public default boolean escapesInward() {
+		return false;
+	}
+	/**
+	 * Used to smooth the colors between escape iterations (see
+	 * FractalColors.smoothIteration()).
+	 * 
+	 * @return the power the value is raised to in each step, which is how
+	 *         fast an escaping orbit grows
+	 */
+	public default double getDegree() {
+		return 2;
+	}
 	
 	public String getName();
 	public String getFormula();
 	
 	public Complex getInitialScreenCenter();
 	public double getInitialScreenDiameter();
+	
+	/**
+	 * @return the number of iterations the starting view is calculated to
+	 */
+	public default int getMaxIterations() {
+		return DEFAULT_MAX_ITERATIONS;
+	}
+	/**
+	 * Deeper views need more iterations before the points near the edge of the
+	 * fractal escape, so the budget grows by getMaxIterations() every
+	 * ZOOMS_PER_BUDGET times the view is zoomed in by 2.
+	 * 
+	 * @return the number of iterations a view diameter across is calculated to
+	 */
+	public default int getMaxIterations(double diameter) {
+		double zooms = Math.max(0, Math.log(getInitialScreenDiameter()/diameter)/Math.log(2));
+		
+		return (int) Math.min(getMaxIterations()*(1 + zooms/ZOOMS_PER_BUDGET), Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Whether step() ignores initial, so an orbit only depends on its current
+	 * value and two points that land on the same value carry on the same way.
+	 * FractalViewer2 shares orbits between pixels only for fractals that say
+	 * so, and the GUI shows them in FractalViewer2 instead of FractalViewer
+	 * until they're zoomed in past doubles (see FractalGUI.getViewerFor()).
+	 * Defaults to false, which is always safe.
+	 */
+	public default boolean isStepIndependentOfInitial() {
+		return false;
+	}
+	/**
+	 * Whether the fractal, and every band of points that escape at the same
+	 * iteration, is connected, so a rectangle whose border is all in one band
+	 * can't have anything else inside it. FractalViewer only subdivides (see
+	 * SubdivisionRenderer) fractals that say so. Defaults to false, which is
+	 * always safe.
+	 */
+	public default boolean isConnected() {
+		return false;
+	}
 }
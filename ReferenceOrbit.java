@@ -0,0 +1,106 @@
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * The orbit of one point of a PerturbableFractal, calculated at high precision
+ * and kept as doubles for PerturbationFrame to iterate deltas against. The
+ * orbit is only calculated as far as it's needed, one extendTo() at a time,
+ * and stops once it diverges.
+ * 
+ * Only the position of the point has to be precise: the values of the orbit
+ * are rounded to doubles, since the deltas added to them are what carries the
+ * fine detail.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class ReferenceOrbit {
+	/**
+	 * digits of precision used on top of the number needed to tell pixels
+	 * apart
+	 */
+	public static final int GUARD_DIGITS = 20;
+	
+	private PerturbableFractal fractal;
+	private BigComplex initial;
+	private MathContext mc;
+	
+	private BigComplex value;
+	private double[] re;
+	private double[] im;
+	private int length;
+	private boolean diverged;
+	
+	/**
+	 * @param spacing the distance between pixels that will be iterated
+	 *                against this orbit, which decides how precise it is
+	 */
+	public ReferenceOrbit(PerturbableFractal fractal, BigComplex initial, double spacing) {
+		this.fractal = fractal;
+		this.initial = initial;
+		mc = precisionFor(spacing);
+		
+		value = fractal.start(initial);
+		re = new double[1024];
+		im = new double[1024];
+		re[0] = value.re().doubleValue();
+		im[0] = value.im().doubleValue();
+		length = 1;
+		diverged = false;
+	}
+	
+	/**
+	 * @return enough precision to tell apart points spacing apart, and to
+	 *         iterate them without the rounding errors catching up
+	 */
+	public static MathContext precisionFor(double spacing) {
+		return new MathContext(GUARD_DIGITS + (int) Math.max(0, Math.ceil(-Math.log10(spacing))));
+	}
+	
+	/**
+	 * Calculates the orbit up to and including value number iteration, unless
+	 * it diverges first. The value it diverges at is included.
+	 */
+	public void extendTo(int iteration) {
+		while (length <= iteration && !diverged) {
+			value = fractal.step(value, initial, mc);
+			
+			if (length == re.length) {
+				re = Arrays.copyOf(re, length*2);
+				im = Arrays.copyOf(im, length*2);
+			}
+			re[length] = value.re().doubleValue();
+			im[length] = value.im().doubleValue();
+			
+			diverged = fractal.diverges(re[length], im[length], length);
+			length++;
+		}
+	}
+	
+	/**
+	 * @return the number of values calculated so far
+	 */
+	public int getLength() {
+		return length;
+	}
+	/**
+	 * @return whether the last value calculated diverged, so the orbit won't
+	 *         get any longer
+	 */
+	public boolean hasDiverged() {
+		return diverged;
+	}
+	public double getRe(int n) {
+		return re[n];
+	}
+	public double getIm(int n) {
+		return im[n];
+	}
+	
+	public BigComplex getInitial() {
+		return initial;
+	}
+	public MathContext getMathContext() {
+		return mc;
+	}
+}
@@ -0,0 +1,38 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One job submitted to a RenderQueue. Each job has a generation ID, one more
+ * than the job submitted before it, and is cancelled as soon as a newer job is
+ * submitted, so a job that's running has to check isCancelled() every so often
+ * and stop when it is. TileScheduler checks it before every tile.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class RenderJob {
+	/**
+	 * a job that's never cancelled, for calculations that run to the end on
+	 * the calling thread
+	 */
+	public static final RenderJob UNCANCELLABLE = new RenderJob(new AtomicLong(), 0);
+	
+	//the generation of the newest job in the queue
+	private AtomicLong newest;
+	private long generation;
+	
+	RenderJob(AtomicLong newest, long generation) {
+		this.newest = newest;
+		this.generation = generation;
+	}
+	
+	public long getGeneration() {
+		return generation;
+	}
+	/**
+	 * @return whether a newer job has been submitted, in which case nothing
+	 *         this job calculates will be used
+	 */
+	public boolean isCancelled() {
+		return newest.get() != generation;
+	}
+}
@@ -0,0 +1,72 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs a viewer's calculations on a background thread, one RenderJob at a
+ * time, so the event dispatch thread never waits for them. Submitting a job
+ * cancels every job submitted before it. Jobs that are cancelled before they
+ * start are skipped, so a burst of submissions, like the events from
+ * dragging the edge of a window, only ends up running the last one, and the
+ * job that's running stops at its next check.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class RenderQueue {
+	private AtomicLong newest;
+	private ExecutorService executor;
+	
+	/**
+	 * @param name the name of the background thread
+	 */
+	public RenderQueue(String name) {
+		newest = new AtomicLong();
+		executor = Executors.newSingleThreadExecutor(task -> {
+			Thread thread = new Thread(task, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Cancels every job submitted so far and queues work to run after them on
+	 * the background thread, unless it's cancelled first.
+	 * 
+	 * @return the job work is run as
+	 */
+	public RenderJob submit(Consumer<RenderJob> work) {
+		RenderJob job = new RenderJob(newest, newest.incrementAndGet());
+		
+		executor.execute(() -> {
+			if (!job.isCancelled()) {
+				work.accept(job);
+			}
+		});
+		
+		return job;
+	}
+	/**
+	 * Queues task to run on the background thread after whatever is running
+	 * or queued, without cancelling anything. Used for quick work on what the
+	 * jobs have calculated, like coloring it again.
+	 */
+	public void execute(Runnable task) {
+		executor.execute(task);
+	}
+	/**
+	 * Cancels every job submitted so far.
+	 */
+	public void cancel() {
+		newest.incrementAndGet();
+	}
+	/**
+	 * Cancels every job and stops the background thread once the one running
+	 * has stopped. Nothing can be submitted afterwards.
+	 */
+	public void shutdown() {
+		cancel();
+		executor.shutdown();
+	}
+}
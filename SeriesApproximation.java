@@ -0,0 +1,125 @@
+/**
+ * Skips the first iterations of every pixel of a deep Mandelbrot zoom at once.
+ * Near the start of their orbits, all the pixels of a deep zoom follow the
+ * reference orbit so closely that their deltas are a polynomial in their
+ * initial delta dC:
+ * 
+ * delta_n = A_n*dC + B_n*dC^2 + C_n*dC^3 + ...
+ * 
+ * with A_n+1 = 2*Z_n*A_n + 1, B_n+1 = 2*Z_n*B_n + A_n^2, and
+ * C_n+1 = 2*Z_n*C_n + 2*A_n*B_n. The coefficients are iterated once along the
+ * reference orbit for as long as the first term left out, D_n*dC^4 (with
+ * D_n+1 = 2*Z_n*D_n + 2*A_n*C_n + B_n^2), stays a small fraction of the
+ * difference between neighboring pixels, and as long as no pixel could
+ * diverge yet. Every pixel then starts from the polynomial at that iteration
+ * instead of from 0.
+ * 
+ * The coefficients are kept multiplied by the matching power of the radius of
+ * the frame, so they stay near 1 instead of overflowing at deep zooms. Only
+ * works for Z_n+1 = (Z_n)^2 + C.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class SeriesApproximation {
+	/**
+	 * largest error allowed, as a fraction of the difference between
+	 * neighboring pixels' deltas
+	 */
+	public static final double TOLERANCE = 1e-3;
+	/**
+	 * most iterations skipped, so the reference orbit doesn't take too long
+	 */
+	public static final int MAX_ITERATIONS = 1 << 16;
+	
+	private int iterations;
+	private double radius;
+	//the coefficients times radius, radius^2 and radius^3
+	private double aRe;
+	private double aIm;
+	private double bRe;
+	private double bIm;
+	private double cRe;
+	private double cIm;
+	
+	/**
+	 * @param radius  the largest initial delta of any pixel
+	 * @param spacing the distance between pixels
+	 */
+	public SeriesApproximation(PrimitiveFractal fractal, ReferenceOrbit reference, double radius, double spacing) {
+		this.radius = radius;
+		double tolerance = TOLERANCE*spacing/radius;
+		
+		double aRe = 0, aIm = 0, bRe = 0, bIm = 0, cRe = 0, cIm = 0, dRe = 0, dIm = 0;
+		iterations = 0;
+		
+		for (int n = 0; n < MAX_ITERATIONS; n++) {
+			reference.extendTo(n + 1);
+			if (reference.getLength() <= n + 1 || reference.hasDiverged() && reference.getLength() == n + 2) {
+				break;
+			}
+			
+			double twoZRe = 2*reference.getRe(n);
+			double twoZIm = 2*reference.getIm(n);
+			
+			double nextARe = twoZRe*aRe - twoZIm*aIm + radius;
+			double nextAIm = twoZRe*aIm + twoZIm*aRe;
+			double nextBRe = twoZRe*bRe - twoZIm*bIm + aRe*aRe - aIm*aIm;
+			double nextBIm = twoZRe*bIm + twoZIm*bRe + 2*aRe*aIm;
+			double nextCRe = twoZRe*cRe - twoZIm*cIm + 2*(aRe*bRe - aIm*bIm);
+			double nextCIm = twoZRe*cIm + twoZIm*cRe + 2*(aRe*bIm + aIm*bRe);
+			double nextDRe = twoZRe*dRe - twoZIm*dIm + 2*(aRe*cRe - aIm*cIm) + bRe*bRe - bIm*bIm;
+			double nextDIm = twoZRe*dIm + twoZIm*dRe + 2*(aRe*cIm + aIm*cRe) + 2*bRe*bIm;
+			
+			double nextA = Math.hypot(nextARe, nextAIm);
+			double largestDelta = nextA + Math.hypot(nextBRe, nextBIm) + Math.hypot(nextCRe, nextCIm);
+			double referenceSize = Math.hypot(reference.getRe(n + 1), reference.getIm(n + 1));
+			
+			if (!(Math.hypot(nextDRe, nextDIm) <= tolerance*nextA) || fractal.diverges(referenceSize + largestDelta, 0, n + 1)) {
+				break;
+			}
+			
+			aRe = nextARe;
+			aIm = nextAIm;
+			bRe = nextBRe;
+			bIm = nextBIm;
+			cRe = nextCRe;
+			cIm = nextCIm;
+			dRe = nextDRe;
+			dIm = nextDIm;
+			iterations = n + 1;
+		}
+		
+		this.aRe = aRe;
+		this.aIm = aIm;
+		this.bRe = bRe;
+		this.bIm = bIm;
+		this.cRe = cRe;
+		this.cIm = cIm;
+	}
+	
+	/**
+	 * @return the number of iterations every pixel can skip
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+	
+	/**
+	 * Writes the delta after getIterations() iterations of the pixel with the
+	 * given initial delta into deltaRe[i] and deltaIm[i].
+	 */
+	public void evaluate(double initialDeltaRe, double initialDeltaIm, double[] deltaRe, double[] deltaIm, int i) {
+		double uRe = initialDeltaRe/radius;
+		double uIm = initialDeltaIm/radius;
+		
+		//((C*u + B)*u + A)*u
+		double re = cRe*uRe - cIm*uIm + bRe;
+		double im = cRe*uIm + cIm*uRe + bIm;
+		double nextRe = re*uRe - im*uIm + aRe;
+		double nextIm = re*uIm + im*uRe + aIm;
+		
+		deltaRe[i] = nextRe*uRe - nextIm*uIm;
+		deltaIm[i] = nextRe*uIm + nextIm*uRe;
+	}
+}
@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders a FractalFrame to a fixed number of iterations by Mariani-Silver
+ * subdivision instead of iterating every pixel. Only the border of each
+ * rectangle is calculated, and if every pixel on it has the same result the
+ * whole rectangle is filled with it. Otherwise the rectangle is split into
+ * four and each quarter is done the same way, down to MIN_SIZE, where every
+ * pixel is calculated.
+ * 
+ * This works because the Mandelbrot Set is connected, so a part of it, or of
+ * one escape band, can't be inside a rectangle without touching its border.
+ * It's only right for fractals that are connected the same way (see
+ * RecursiveFractal.isConnected()).
+ * Features thinner than a pixel can still slip between the pixels of a
+ * border, so the result is close to, but not always exactly, what iterating
+ * every pixel gives. The pixels that are filled in aren't calculated, so
+ * their colors aren't smoothed, and each filled rectangle is one flat color.
+ * 
+ * The frame is split into blocks of BLOCK_SIZE pixels which are subdivided on
+ * different threads by a TileScheduler. Blocks don't share any pixels, so the
+ * threads never touch the same pixel.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class SubdivisionRenderer {
+	public static final int BLOCK_SIZE = 64;
+	/**
+	 * rectangles narrower than this are calculated pixel by pixel
+	 */
+	public static final int MIN_SIZE = 4;
+	
+	//result of a pixel that hasn't been calculated yet
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	
+	private TileScheduler scheduler;
+	
+	private FractalFrame frame;
+	private PrimitiveFractal kernel;
+	private int maxIterations;
+	private FrameBuffer image;
+	private int width;
+	private int[] results;
+	//NaN for pixels that were filled in
+	private float[] resultR2;
+	private AtomicInteger calculated;
+	
+	public SubdivisionRenderer(TileScheduler scheduler) {
+		this.scheduler = scheduler;
+		calculated = new AtomicInteger();
+	}
+	
+	/**
+	 * Works out the result of every pixel of frame after maxIterations, and
+	 * marks every pixel that escaped or is INTERIOR as finished. Pixels that
+	 * were already finished are kept as long as they escaped within
+	 * maxIterations. The frame should have just been placed by init() or
+	 * reproject(), and shouldn't be iterated afterwards, since the pixels
+	 * still alive haven't been stepped. The color of each pixel is written
+	 * into the frame's image as soon as it's known. If job is cancelled before
+	 * every block is done, the frame is left as it was.
+	 * 
+	 * @return the number of pixels that had to be calculated, or -1 if job was
+	 *         cancelled
+	 */
+	public int render(FractalFrame frame, PrimitiveFractal kernel, int maxIterations, RenderJob job) {
+		this.frame = frame;
+		this.kernel = kernel;
+		this.maxIterations = maxIterations;
+		image = frame.getImage();
+		width = frame.getWidth();
+		int height = frame.getHeight();
+		
+		results = frame.getEscapeIterations().clone();
+		resultR2 = frame.getEscapeR2().clone();
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] == FractalFrame.NOT_ESCAPED || results[i] > maxIterations) {
+				results[i] = UNKNOWN;
+			}
+		}
+		calculated.set(0);
+		
+		int blocksWide = (width + BLOCK_SIZE - 1)/BLOCK_SIZE;
+		int blocksHigh = (height + BLOCK_SIZE - 1)/BLOCK_SIZE;
+		boolean finished = scheduler.run(blocksWide*blocksHigh, block -> {
+			int x0 = (block%blocksWide)*BLOCK_SIZE;
+			int y0 = (block/blocksWide)*BLOCK_SIZE;
+			
+			subdivide(x0, y0, Math.min(x0 + BLOCK_SIZE, width) - 1, Math.min(y0 + BLOCK_SIZE, height) - 1);
+		}, job);
+		
+		if (finished) {
+			frame.markFinished(results, resultR2);
+		}
+		this.frame = null;
+		image = null;
+		
+		return finished ? calculated.get() : -1;
+	}
+	
+	/**
+	 * Fills in every pixel from (x0, y0) to (x1, y1), inclusive.
+	 */
+	private void subdivide(int x0, int y0, int x1, int y1) {
+		if (x1 - x0 < MIN_SIZE || y1 - y0 < MIN_SIZE) {
+			for (int y = y0; y <= y1; y++) {
+				for (int x = x0; x <= x1; x++) {
+					resultOf(y*width + x);
+				}
+			}
+			return;
+		}
+		
+		int border = resultOf(y0*width + x0);
+		boolean uniform = true;
+		for (int x = x0; x <= x1; x++) {
+			uniform &= resultOf(y0*width + x) == border;
+			uniform &= resultOf(y1*width + x) == border;
+		}
+		for (int y = y0 + 1; y < y1; y++) {
+			uniform &= resultOf(y*width + x0) == border;
+			uniform &= resultOf(y*width + x1) == border;
+		}
+		
+		if (uniform && fill(x0 + 1, y0 + 1, x1 - 1, y1 - 1, border)) {
+			return;
+		}
+		
+		//the quarters share the middle row and column, which are only calculated once
+		int middleX = (x0 + x1) >>> 1;
+		int middleY = (y0 + y1) >>> 1;
+		subdivide(x0, y0, middleX, middleY);
+		subdivide(middleX, y0, x1, middleY);
+		subdivide(x0, middleY, middleX, y1);
+		subdivide(middleX, middleY, x1, y1);
+	}
+	/**
+	 * Sets every pixel from (x0, y0) to (x1, y1), inclusive, to result, unless
+	 * one of them is already known to be something else. A rectangle inside a
+	 * border that didn't escape is filled with INTERIOR, so the frame marks it
+	 * finished.
+	 * 
+	 * @return whether the pixels were filled
+	 */
+	private boolean fill(int x0, int y0, int x1, int y1, int result) {
+		for (int y = y0; y <= y1; y++) {
+			for (int x = x0; x <= x1; x++) {
+				int known = results[y*width + x];
+				if (known != UNKNOWN && classOf(known) != result) {
+					return false;
+				}
+			}
+		}
+		
+		int filled = result == FractalFrame.NOT_ESCAPED ? FractalFrame.INTERIOR : result;
+		for (int y = y0; y <= y1; y++) {
+			int row = y*width;
+			Arrays.fill(results, row + x0, row + x1 + 1, filled);
+			Arrays.fill(resultR2, row + x0, row + x1 + 1, Float.NaN);
+			
+			if (image != null) {
+				for (int x = x0; x <= x1; x++) {
+					image.set(row + x, FractalColors.argbOf(result));
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return the result of pixel i, calculating it if it isn't known yet
+	 */
+	private int resultOf(int i) {
+		if (results[i] == UNKNOWN) {
+			results[i] = frame.escapeIteration(kernel, i, maxIterations, resultR2);
+			calculated.incrementAndGet();
+			
+			if (image != null) {
+				image.set(i, FractalColors.argbOf(kernel, results[i], resultR2[i]));
+			}
+		}
+		
+		return classOf(results[i]);
+	}
+	/**
+	 * @return the escape iteration, or NOT_ESCAPED for both INTERIOR and
+	 *         NOT_ESCAPED, since they look the same
+	 */
+	private static int classOf(int result) {
+		return result < 0 ? FractalFrame.NOT_ESCAPED : result;
+	}
+}
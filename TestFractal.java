@@ -5,9 +5,13 @@
  * @author Samuel Lieberman
  *
  */
-public class TestFractal implements RecursiveFractal {
+public class TestFractal implements PrimitiveFractal {
 	private static final Complex START_POS = new Complex(0, 0);
 	private static final double DIVERGE_RADIUS = 2;
+	private static final double ESCAPE_RADIUS2 = DIVERGE_RADIUS*DIVERGE_RADIUS;
+	private static final double POWER = 2.1;
+	//ImMath.pow treats anything smaller than this as zero
+	private static final double ZERO_RADIUS = 0.000000001;
 	
 	@Override
 	public Complex start(Complex initial) {
@@ -17,12 +21,51 @@ public class TestFractal implements RecursiveFractal {
 	@Override
 	public Complex step(Complex c, Complex initial) {
 		//return ImMath.add(ImMath.mult(c, c), initial);
-		return ImMath.add(ImMath.pow(c, 2.1), initial);
+		return ImMath.add(ImMath.pow(c, POWER), initial);
 	}
 
 	@Override
 	public boolean diverges(Complex c, int iterations) {
-		return c.r() > DIVERGE_RADIUS;
+		return c.re()*c.re() + c.im()*c.im() > ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public double getEscapeRadius2() {
+		return ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public double getDegree() {
+		return POWER;
+	}
+	
+	@Override
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i) {
+		re[i] = 0;
+		im[i] = 0;
+	}
+	
+	@Override
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm) {
+		double x = re[i];
+		double y = im[i];
+		double r2 = x*x + y*y;
+		
+		if (r2 < ZERO_RADIUS*ZERO_RADIUS || Double.isInfinite(r2)) {
+			re[i] = initialRe;
+			im[i] = initialIm;
+		}else {
+			//z^p = |z|^p*e^(i*p*th), and |z|^p = (|z|^2)^(p/2)
+			double r = Math.pow(r2, POWER/2);
+			double th = Math.atan2(y, x)*POWER;
+			re[i] = r*Math.cos(th) + initialRe;
+			im[i] = r*Math.sin(th) + initialIm;
+		}
+	}
+	
+	@Override
+	public boolean diverges(double re, double im, int iterations) {
+		return re*re + im*im > ESCAPE_RADIUS2;
 	}
 
 	@Override
@@ -32,7 +75,7 @@ public class TestFractal implements RecursiveFractal {
 
 	@Override
 	public String getFormula() {
-		return "Z_n+1 = (Z_n)^2.1 + C";
+		return "Z_n+1 = (Z_n)^" + POWER + " + C";
 	}
 
 	@Override
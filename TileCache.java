@@ -0,0 +1,424 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the escape iterations of already calculated parts of fractals on disk,
+ * so coming back to the same place (even after restarting) doesn't mean
+ * calculating it all over again.
+ * 
+ * The complex plane is split into a quadtree of tiles, each TILE_SIZE by
+ * TILE_SIZE points of a lattice. A lattice with spacing m*2^-level (1 <= m < 2)
+ * is at depth level of the quadtree for m, so zooming in by 2 moves one level
+ * down and every tile splits into four. A tile is identified by the fractal's
+ * name, the engine that calculated it (different engines can give different
+ * results), its level and position in the quadtree, and the iteration budget
+ * it was calculated up to. Only the tile with the largest budget is kept,
+ * since it answers everything a smaller budget would.
+ * 
+ * Each tile is stored in its own memory mapped file, with 2 bytes per point if
+ * every escape iteration fits in a short and 4 bytes otherwise, followed by a
+ * float per point with the square of its size at its escape iteration, which
+ * smooths its color. When the files take up more than the disk budget, the
+ * least recently used ones are deleted.
+ * 
+ * The default cache is in ~/.fractalviewer/cache. Its location and budget (in
+ * megabytes, 0 to disable it) can be changed with the fractalviewer.cache.dir
+ * and fractalviewer.cache.mb system properties.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class TileCache {
+	/**
+	 * width and height of each tile in lattice points
+	 */
+	public static final int TILE_SIZE = 64;
+	public static final long DEFAULT_BUDGET_MB = 256;
+	/**
+	 * the first iteration tiles are saved at. After this they're saved at
+	 * every power of two iteration.
+	 */
+	public static final int MIN_CHECKPOINT = 1024;
+	
+	//tiles from before escapeR2 was stored start with 0x46564354, and tiles from
+	//before the quadratic fractals escaped at 256 start with 0x46564355. Both are
+	//dropped when read
+	private static final int MAGIC = 0x46564356;
+	private static final int HEADER_BYTES = 14;
+	private static final String SUFFIX = ".tile";
+	
+	private static TileCache defaultCache;
+	
+	private Path directory;
+	private long diskBudget;
+	private long diskUsed;
+	private boolean enabled;
+	//every tile on disk by the hash of its key, least recently used first
+	private LinkedHashMap<String, Entry> entries;
+	
+	/**
+	 * @param diskBudget the most bytes of tiles kept in directory, or 0 to
+	 *                   never store or load anything
+	 */
+	public TileCache(Path directory, long diskBudget) {
+		this.directory = directory;
+		this.diskBudget = diskBudget;
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		diskUsed = 0;
+		enabled = false;
+		
+		if (diskBudget > 0) {
+			try {
+				Files.createDirectories(directory);
+				scan();
+				enabled = true;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * @return the cache shared by every viewer
+	 */
+	public static synchronized TileCache getDefault() {
+		if (defaultCache == null) {
+			Path directory = Paths.get(System.getProperty("fractalviewer.cache.dir", Paths.get(System.getProperty("user.home"), ".fractalviewer", "cache").toString()));
+			long budgetMB = Long.getLong("fractalviewer.cache.mb", DEFAULT_BUDGET_MB);
+			
+			defaultCache = new TileCache(directory, budgetMB << 20);
+		}
+		
+		return defaultCache;
+	}
+	
+	/**
+	 * @return whether tiles should be saved after the given iteration
+	 */
+	public static boolean isCheckpoint(int iteration) {
+		return iteration >= MIN_CHECKPOINT && (iteration & (iteration - 1)) == 0;
+	}
+	
+	/**
+	 * Copies the finished (escaped or INTERIOR) points of every cached tile
+	 * that overlaps a frame into it. The frame's pixel (x, y) is at lattice
+	 * point (originX + x, originY + y).
+	 * 
+	 * @param escapes  the frame's escape iterations, indexed by y*width + x.
+	 *                 Pixels that aren't in the cache are left alone.
+	 * @param escapeR2 the square of the size of each of the frame's pixels at
+	 *                 its escape iteration, filled in the same way
+	 * @return the number of pixels copied
+	 */
+	public synchronized int restore(String engine, String fractalName, long originX, long originY, double spacing, int width, int height, int[] escapes, float[] escapeR2) {
+		if (!enabled || width == 0 || height == 0) {
+			return 0;
+		}
+		
+		int[] tile = new int[TILE_SIZE*TILE_SIZE];
+		float[] tileR2 = new float[TILE_SIZE*TILE_SIZE];
+		int restored = 0;
+		
+		for (long tileY = Math.floorDiv(originY, TILE_SIZE); tileY*TILE_SIZE < originY + height; tileY++) {
+			for (long tileX = Math.floorDiv(originX, TILE_SIZE); tileX*TILE_SIZE < originX + width; tileX++) {
+				if (!load(keyOf(engine, fractalName, spacing, tileX, tileY), tile, tileR2)) {
+					continue;
+				}
+				
+				for (int y = 0; y < TILE_SIZE; y++) {
+					long pixY = tileY*TILE_SIZE + y - originY;
+					if (pixY < 0 || pixY >= height) {
+						continue;
+					}
+					
+					for (int x = 0; x < TILE_SIZE; x++) {
+						long pixX = tileX*TILE_SIZE + x - originX;
+						int escape = tile[y*TILE_SIZE + x];
+						
+						if (pixX >= 0 && pixX < width && escape != FractalFrame.NOT_ESCAPED) {
+							escapes[(int) (pixY*width + pixX)] = escape;
+							escapeR2[(int) (pixY*width + pixX)] = tileR2[y*TILE_SIZE + x];
+							restored++;
+						}
+					}
+				}
+			}
+		}
+		
+		return restored;
+	}
+	
+	/**
+	 * Saves every tile that lies completely inside a frame, unless a tile with
+	 * the same or a larger budget is already saved. Takes the same frame as
+	 * restore().
+	 * 
+	 * @param budget the number of iterations the frame has been calculated to
+	 */
+	public synchronized void store(String engine, String fractalName, long originX, long originY, double spacing, int width, int height, int[] escapes, float[] escapeR2, int budget) {
+		if (!enabled) {
+			return;
+		}
+		
+		int[] tile = new int[TILE_SIZE*TILE_SIZE];
+		float[] tileR2 = new float[TILE_SIZE*TILE_SIZE];
+		
+		for (long tileY = Math.floorDiv(originY + TILE_SIZE - 1, TILE_SIZE); (tileY + 1)*TILE_SIZE <= originY + height; tileY++) {
+			for (long tileX = Math.floorDiv(originX + TILE_SIZE - 1, TILE_SIZE); (tileX + 1)*TILE_SIZE <= originX + width; tileX++) {
+				String key = keyOf(engine, fractalName, spacing, tileX, tileY);
+				Entry entry = entries.get(hashOf(key));
+				if (entry != null && entry.budget >= budget) {
+					continue;
+				}
+				
+				for (int y = 0; y < TILE_SIZE; y++) {
+					int row = (int) ((tileY*TILE_SIZE + y - originY)*width + tileX*TILE_SIZE - originX);
+					System.arraycopy(escapes, row, tile, y*TILE_SIZE, TILE_SIZE);
+					System.arraycopy(escapeR2, row, tileR2, y*TILE_SIZE, TILE_SIZE);
+				}
+				
+				save(key, budget, tile, tileR2);
+			}
+		}
+		
+		evict();
+	}
+	
+	/**
+	 * @return the number of bytes of tiles on disk
+	 */
+	public synchronized long getDiskUsed() {
+		return diskUsed;
+	}
+	public long getDiskBudget() {
+		return diskBudget;
+	}
+	
+	/**
+	 * Describes a tile. The level and mantissa of the spacing place the
+	 * lattice in the quadtree.
+	 */
+	private static String keyOf(String engine, String fractalName, double spacing, long tileX, long tileY) {
+		int level = -Math.getExponent(spacing);
+		double mantissa = Math.scalb(spacing, level);
+		
+		return engine + "/" + fractalName + "/" + Long.toHexString(Double.doubleToLongBits(mantissa)) + "/" + level + "/" + tileX + "/" + tileY;
+	}
+	/**
+	 * @return a 64 bit FNV-1a hash of key in hex, used as the file name
+	 */
+	private static String hashOf(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b:key.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		
+		return String.format("%016x", hash);
+	}
+	
+	/**
+	 * Reads the tile with the given key into tile and tileR2.
+	 * 
+	 * @return false if it isn't cached
+	 */
+	private boolean load(String key, int[] tile, float[] tileR2) {
+		Entry entry = entries.get(hashOf(key));
+		if (entry == null) {
+			return false;
+		}
+		
+		try (FileChannel channel = FileChannel.open(entry.path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			int bytesPerPoint = readHeader(buffer, key);
+			if (bytesPerPoint == 2) {
+				for (int i = 0; i < tile.length; i++) {
+					tile[i] = buffer.getShort();
+				}
+			}else {
+				buffer.asIntBuffer().get(tile);
+				buffer.position(buffer.position() + 4*tile.length);
+			}
+			buffer.asFloatBuffer().get(tileR2);
+			
+			Files.setLastModifiedTime(entry.path, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		} catch (IOException | RuntimeException e) {
+			//a tile that can't be read is as good as not cached
+			forget(entry);
+			return false;
+		}
+	}
+	private void save(String key, int budget, int[] tile, float[] tileR2) {
+		boolean fitsInShort = true;
+		for (int escape:tile) {
+			if (escape != (short) escape) {
+				fitsInShort = false;
+				break;
+			}
+		}
+		
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int bytesPerPoint = fitsInShort ? 2 : 4;
+		long size = HEADER_BYTES + keyBytes.length + (long) tile.length*(bytesPerPoint + 4);
+		
+		String hash = hashOf(key);
+		Entry old = entries.get(hash);
+		Path path = directory.resolve(hash + "-" + budget + SUFFIX);
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			
+			buffer.putInt(MAGIC);
+			buffer.putInt(budget);
+			buffer.put((byte) TILE_SIZE);
+			buffer.put((byte) bytesPerPoint);
+			buffer.putInt(keyBytes.length);
+			buffer.put(keyBytes);
+			if (fitsInShort) {
+				for (int escape:tile) {
+					buffer.putShort((short) escape);
+				}
+			}else {
+				buffer.asIntBuffer().put(tile);
+				buffer.position(buffer.position() + 4*tile.length);
+			}
+			buffer.asFloatBuffer().put(tileR2);
+			buffer.force();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		if (old != null) {
+			forget(old);
+		}
+		entries.put(hash, new Entry(path, budget, size));
+		diskUsed += size;
+	}
+	/**
+	 * Checks the header of a tile and skips past it.
+	 * 
+	 * @return the number of bytes used for each point
+	 */
+	private static int readHeader(ByteBuffer buffer, String key) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("not a tile");
+		}
+		buffer.getInt();
+		if (buffer.get() != TILE_SIZE) {
+			throw new IOException("wrong tile size");
+		}
+		int bytesPerPoint = buffer.get();
+		
+		byte[] keyBytes = new byte[buffer.getInt()];
+		buffer.get(keyBytes);
+		if (key != null && !key.equals(new String(keyBytes, StandardCharsets.UTF_8))) {
+			throw new IOException("hash collision");
+		}
+		
+		return bytesPerPoint;
+	}
+	
+	/**
+	 * Adds every tile already in the directory, least recently used first.
+	 * Tiles that were replaced by a larger budget but never deleted are
+	 * deleted now.
+	 */
+	private void scan() throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path path:stream) {
+				paths.add(path);
+			}
+		}
+		
+		Map<Path, Long> modified = new LinkedHashMap<>();
+		for (Path path:paths) {
+			modified.put(path, Files.getLastModifiedTime(path).toMillis());
+		}
+		paths.sort((a, b) -> Long.compare(modified.get(a), modified.get(b)));
+		
+		for (Path path:paths) {
+			String name = path.getFileName().toString();
+			int dash = name.indexOf('-');
+			if (dash < 0) {
+				continue;
+			}
+			
+			String hash = name.substring(0, dash);
+			int budget;
+			try {
+				budget = Integer.parseInt(name.substring(dash + 1, name.length() - SUFFIX.length()));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			
+			Entry old = entries.get(hash);
+			if (old != null && old.budget >= budget) {
+				Files.deleteIfExists(path);
+				continue;
+			}
+			if (old != null) {
+				forget(old);
+			}
+			
+			long size = Files.size(path);
+			entries.put(hash, new Entry(path, budget, size));
+			diskUsed += size;
+		}
+		
+		evict();
+	}
+	/**
+	 * Deletes the least recently used tiles until they fit in the budget.
+	 */
+	private void evict() {
+		Iterator<Entry> iterator = entries.values().iterator();
+		
+		while (diskUsed > diskBudget && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			iterator.remove();
+			delete(entry);
+		}
+	}
+	private void forget(Entry entry) {
+		entries.values().remove(entry);
+		delete(entry);
+	}
+	private void delete(Entry entry) {
+		diskUsed -= entry.size;
+		try {
+			Files.deleteIfExists(entry.path);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	private static class Entry {
+		private Path path;
+		private int budget;
+		private long size;
+		
+		public Entry(Path path, int budget, long size) {
+			this.path = path;
+			this.budget = budget;
+			this.size = size;
+		}
+	}
+}
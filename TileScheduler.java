@@ -0,0 +1,107 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a task over every tile of a frame on a ForkJoinPool. The range of tiles
+ * is split in half recursively so idle workers can steal the other half, and
+ * run() doesn't return until every tile is done, so callers can treat each
+ * call as one step that happens all at once.
+ * 
+ * A parallelism of 1 runs every tile on the calling thread without a pool.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class TileScheduler {
+	public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+	
+	private ForkJoinPool pool;
+	private int parallelism;
+	
+	public TileScheduler() {
+		this(DEFAULT_PARALLELISM);
+	}
+	public TileScheduler(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1, not " + parallelism);
+		}
+		
+		this.parallelism = parallelism;
+		if (parallelism > 1) {
+			pool = new ForkJoinPool(parallelism);
+		}
+	}
+	
+	/**
+	 * Calls task.accept(tile) for every tile from 0 up to tileCount, and waits
+	 * for all of them to finish.
+	 */
+	public void run(int tileCount, IntConsumer task) {
+		if (pool == null) {
+			for (int tile = 0; tile < tileCount; tile++) {
+				task.accept(tile);
+			}
+		}else {
+			pool.invoke(new TileRange(task, 0, tileCount));
+		}
+	}
+	
+	/**
+	 * Same as run(), except tiles that haven't started by the time job is
+	 * cancelled are skipped.
+	 * 
+	 * @return true if every tile was run
+	 */
+	public boolean run(int tileCount, IntConsumer task, RenderJob job) {
+		AtomicBoolean skipped = new AtomicBoolean();
+		
+		run(tileCount, tile -> {
+			if (job.isCancelled()) {
+				skipped.set(true);
+			}else {
+				task.accept(tile);
+			}
+		});
+		
+		return !skipped.get();
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Stops the worker threads. The scheduler can't be used afterwards.
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+	
+	private static class TileRange extends RecursiveAction {
+		private static final long serialVersionUID = -3061447519742370880L;
+		
+		private IntConsumer task;
+		private int start;
+		private int end;
+		
+		public TileRange(IntConsumer task, int start, int end) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end - start == 1) {
+				task.accept(start);
+			}else if (end > start) {
+				int middle = (start + end) >>> 1;
+				invokeAll(new TileRange(task, start, middle), new TileRange(task, middle, end));
+			}
+		}
+	}
+}
@@ -5,9 +5,12 @@
  * @author Samuel Lieberman
  *
  */
-public class TriangleFractal implements RecursiveFractal {
+public class TriangleFractal implements DDFractal {
 	private static final Complex START_POS = new Complex(0, 0);
 	private static final double DIVERGE_RADIUS = 0.01;
+	private static final double ESCAPE_RADIUS2 = DIVERGE_RADIUS*DIVERGE_RADIUS;
+	//ImMath.pow treats anything smaller than this as zero
+	private static final double ZERO_RADIUS = 0.000000001;
 	
 	@Override
 	public Complex start(Complex initial) {
@@ -22,9 +25,60 @@ public class TriangleFractal implements RecursiveFractal {
 
 	@Override
 	public boolean diverges(Complex c, int iterations) {
-		return c.r() < DIVERGE_RADIUS;// && Math.abs(c.im()) < DIVERGE_RADIUS;
+		return c.re()*c.re() + c.im()*c.im() < ESCAPE_RADIUS2;// && Math.abs(c.im()) < DIVERGE_RADIUS;
+	}
+	
+	@Override
+	public double getEscapeRadius2() {
+		return ESCAPE_RADIUS2;
+	}
+	
+	@Override
+	public boolean escapesInward() {
+		return true;
+	}
+	
+	@Override
+	public void start(double initialRe, double initialIm, double[] re, double[] im, int i) {
+		re[i] = 0;
+		im[i] = 0;
+	}
+	
+	@Override
+	public void step(double[] re, double[] im, int i, double initialRe, double initialIm) {
+		double x = re[i];
+		double y = im[i];
+		double r2 = x*x + y*y;
+		
+		if (r2 < ZERO_RADIUS*ZERO_RADIUS) {
+			re[i] = initialRe;
+			im[i] = initialIm;
+		}else {
+			//z^-2 = conj(z)^2/|z|^4
+			double r4 = r2*r2;
+			re[i] = (x*x - y*y)/r4 + initialRe;
+			im[i] = -2*x*y/r4 + initialIm;
+		}
+	}
+	
+	@Override
+	public boolean diverges(double re, double im, int iterations) {
+		return re*re + im*im < ESCAPE_RADIUS2;
 	}
 
+	@Override
+	public void start(double initialReHi, double initialReLo, double initialImHi, double initialImLo, double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i) {
+		reHi[i] = 0;
+		reLo[i] = 0;
+		imHi[i] = 0;
+		imLo[i] = 0;
+	}
+	
+	@Override
+	public void step(double[] reHi, double[] reLo, double[] imHi, double[] imLo, int i, double initialReHi, double initialReLo, double initialImHi, double initialImLo) {
+		DDMath.inverseSquareAdd(reHi, reLo, imHi, imLo, i, initialReHi, initialReLo, initialImHi, initialImLo);
+	}
+	
 	@Override
 	public String getName() {
 		return "Triangle Fractal";
@@ -0,0 +1,115 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A LaneStepper using the Vector API, with as many lanes as the widest double
+ * vector the CPU supports (4 with AVX2, 8 with AVX-512). Only runs of pixels
+ * that are next to each other in memory are vectorized, which is most of them
+ * since the active lists are in order. Gathering and scattering the rest by
+ * index would cost more than it saves, so they're stepped one at a time.
+ * 
+ * Runs are loaded, stepped and stored whole, without masks, even if some of
+ * the pixels in them are dead. Nothing ever reads the value of a dead pixel,
+ * so that's harmless, and the lanes of dead pixels are dropped from the
+ * result.
+ * 
+ * Every operation is done in the same order as in QuadraticFractal.step() and
+ * diverges(), and none of them are fused, so each lane rounds exactly like the
+ * scalar code.
+ * 
+ * Only loaded through LaneStepper.VECTOR, since it needs the
+ * jdk.incubator.vector module.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class VectorStepper implements LaneStepper {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	@Override
+	public int getLanes() {
+		return SPECIES.length();
+	}
+	
+	@Override
+	public long step(QuadraticFractal fractal, int[] active, int j, long aliveLanes, double[] re, double[] im, double[] cRe, double[] cIm,
+			double[] savedRe, double[] savedIm, boolean saveOrbit, double tolerance2) {
+		int first = active[j];
+		if (active[j + SPECIES.length() - 1] - first != SPECIES.length() - 1) {
+			return stepScalar(fractal, active, j, aliveLanes, re, im, cRe, cIm, savedRe, savedIm, saveOrbit, tolerance2);
+		}
+		
+		DoubleVector addRe;
+		DoubleVector addIm;
+		Complex addend = fractal.getAddend();
+		if (addend != null) {
+			addRe = DoubleVector.broadcast(SPECIES, addend.re());
+			addIm = DoubleVector.broadcast(SPECIES, addend.im());
+		}else {
+			addRe = DoubleVector.fromArray(SPECIES, cRe, first);
+			addIm = DoubleVector.fromArray(SPECIES, cIm, first);
+		}
+		
+		DoubleVector x = DoubleVector.fromArray(SPECIES, re, first);
+		DoubleVector y = DoubleVector.fromArray(SPECIES, im, first);
+		
+		//x*x - y*y + addRe and 2*x*y + addIm
+		DoubleVector valueRe = x.mul(x).sub(y.mul(y)).add(addRe);
+		DoubleVector valueIm = x.mul(2).mul(y).add(addIm);
+		valueRe.intoArray(re, first);
+		valueIm.intoArray(im, first);
+		
+		DoubleVector r2 = valueRe.mul(valueRe).add(valueIm.mul(valueIm));
+		VectorMask<Double> divergedLanes = r2.compare(VectorOperators.GT, fractal.getEscapeRadius2());
+		long diverged = divergedLanes.anyTrue() ? divergedLanes.toLong() & aliveLanes : 0;
+		
+		if (saveOrbit) {
+			valueRe.intoArray(savedRe, first);
+			valueIm.intoArray(savedIm, first);
+			
+			return diverged;
+		}
+		
+		DoubleVector dRe = valueRe.sub(DoubleVector.fromArray(SPECIES, savedRe, first));
+		DoubleVector dIm = valueIm.sub(DoubleVector.fromArray(SPECIES, savedIm, first));
+		VectorMask<Double> periodicLanes = dRe.mul(dRe).add(dIm.mul(dIm)).compare(VectorOperators.LE, tolerance2);
+		long periodic = periodicLanes.anyTrue() ? periodicLanes.toLong() & aliveLanes & ~diverged : 0;
+		
+		return diverged | periodic << 32;
+	}
+	/**
+	 * Same as step(), one pixel at a time.
+	 */
+	private static long stepScalar(QuadraticFractal fractal, int[] active, int j, long aliveLanes, double[] re, double[] im, double[] cRe, double[] cIm,
+			double[] savedRe, double[] savedIm, boolean saveOrbit, double tolerance2) {
+		long finished = 0;
+		
+		for (int lane = 0; lane < SPECIES.length(); lane++) {
+			int i = active[j + lane];
+			
+			if ((aliveLanes & (1L << lane)) != 0) {
+				fractal.step(re, im, i, cRe[i], cIm[i]);
+				double valueRe = re[i];
+				double valueIm = im[i];
+				
+				if (fractal.diverges(valueRe, valueIm, 0)) {
+					finished |= 1L << lane;
+				}else if (saveOrbit) {
+					savedRe[i] = valueRe;
+					savedIm[i] = valueIm;
+				}else {
+					double dRe = valueRe - savedRe[i];
+					double dIm = valueIm - savedIm[i];
+					
+					if (dRe*dRe + dIm*dIm <= tolerance2) {
+						finished |= 1L << (lane + 32);
+					}
+				}
+			}
+		}
+		
+		return finished;
+	}
+}
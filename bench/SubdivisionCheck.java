@@ -0,0 +1,99 @@
+/**
+ * Checks SubdivisionRenderer against iterating every pixel, on small frames
+ * of every shipped fractal that says it's connected, and prints how many
+ * pixels come out differently. Features thinner than a pixel can slip
+ * between the pixels of a border, so a few differences are expected, but more
+ * than MAX_DIFFERENT_FRACTION of a frame fails the check, and so does leaving
+ * more pixels alive than iterating does.
+ * 
+ * Built into the benchmarks jar by the bench profile:
+ * 
+ *     java -cp target/benchmarks.jar SubdivisionCheck
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class SubdivisionCheck {
+	private static final int SIZE = 200;
+	private static final int[] BUDGETS = {1024, 4096};
+	private static final double MAX_DIFFERENT_FRACTION = 0.001;
+	
+	//extra Mandelbrot Set views, as {center re, center im, diameter}
+	private static final double[][] MANDELBROT_VIEWS = {
+			{-0.75, 0.1, 0.05},
+			{-0.16, 1.04, 0.03},
+	};
+	
+	//cannot be instantiated
+	private SubdivisionCheck() {}
+	
+	public static void main(String[] args) {
+		TileScheduler scheduler = new TileScheduler();
+		SubdivisionRenderer subdivider = new SubdivisionRenderer(scheduler);
+		boolean passed = true;
+		
+		for (RecursiveFractal fractal:FractalGUI.getFractals()) {
+			if (!fractal.isConnected()) {
+				System.out.println("Skipping " + fractal.getName() + ", which isn't connected");
+				continue;
+			}
+			
+			Complex center = fractal.getInitialScreenCenter();
+			passed &= check(subdivider, fractal, center.re(), center.im(), fractal.getInitialScreenDiameter());
+			if (fractal instanceof MandelbrotSet) {
+				for (double[] view:MANDELBROT_VIEWS) {
+					passed &= check(subdivider, fractal, view[0], view[1], view[2]);
+				}
+			}
+		}
+		scheduler.shutdown();
+		
+		System.out.println(passed ? "Passed" : "Failed");
+		System.exit(passed ? 0 : 1);
+	}
+	
+	/**
+	 * Renders one view of fractal both ways at every budget in BUDGETS.
+	 * 
+	 * @return whether few enough pixels differed at every budget
+	 */
+	private static boolean check(SubdivisionRenderer subdivider, RecursiveFractal fractal, double centerRe, double centerIm, double diameter) {
+		PrimitiveFractal kernel = PrimitiveAdapter.of(fractal);
+		double spacing = diameter/SIZE;
+		double topLeftRe = centerRe - diameter/2;
+		double topLeftIm = centerIm - diameter/2;
+		boolean passed = true;
+		
+		for (int budget:BUDGETS) {
+			FractalFrame iterated = new FractalFrame();
+			iterated.resize(SIZE, SIZE);
+			iterated.init(kernel, topLeftRe, topLeftIm, spacing);
+			for (int iteration = 1; iteration <= budget && iterated.getAliveCount() > 0; iteration++) {
+				iterated.iterate(kernel, iteration);
+			}
+			
+			FractalFrame subdivided = new FractalFrame();
+			subdivided.resize(SIZE, SIZE);
+			subdivided.init(kernel, topLeftRe, topLeftIm, spacing);
+			int calculated = subdivider.render(subdivided, kernel, budget, RenderJob.UNCANCELLABLE);
+			
+			int[] expected = iterated.getEscapeIterations();
+			int[] actual = subdivided.getEscapeIterations();
+			int different = 0;
+			for (int i = 0; i < expected.length; i++) {
+				//INTERIOR and NOT_ESCAPED look the same
+				if (Math.max(expected[i], FractalFrame.NOT_ESCAPED) != Math.max(actual[i], FractalFrame.NOT_ESCAPED)) {
+					different++;
+				}
+			}
+			
+			//filled in pixels have to be marked finished, so no more are left alive than by iterating
+			boolean ok = different <= MAX_DIFFERENT_FRACTION*expected.length && subdivided.getAliveCount() <= iterated.getAliveCount();
+			System.out.printf("%s %s at (%s, %s), diameter %s, %d iterations: %d of %d pixels differ, %d calculated, %d left alive (%d iterating)%n", ok ? "ok  " : "FAIL",
+					fractal.getName(), centerRe, centerIm, diameter, budget, different, expected.length, calculated, subdivided.getAliveCount(), iterated.getAliveCount());
+			passed &= ok;
+		}
+		
+		return passed;
+	}
+}
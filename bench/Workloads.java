@@ -0,0 +1,184 @@
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * The code measured by the benchmarks in the benchmark package. JMH won't run
+ * benchmarks in the default package and classes in other packages can't see
+ * the default package, so the benchmarks look these workloads up by name (see
+ * benchmark.DefaultPackage) and call them through Supplier.
+ * 
+ * Each workload cycles through a fixed set of inputs so the JIT can't fold the
+ * work away.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+public class Workloads {
+	private static final int INPUT_COUNT = 1024;
+	private static final long SEED = 20200320;
+	
+	/**
+	 * iterations run by every frame workload
+	 */
+	public static final int FRAME_ITERATIONS = 100;
+	/**
+	 * the width and height of FractalViewer's frames in pixels, which is what
+	 * it drew at its default size when every pixel was 2 wide, so results stay
+	 * comparable with runs from back then
+	 */
+	public static final int FRACTAL_VIEWER_SIZE = 200;
+	
+	//cannot be instantiated
+	private Workloads() {}
+	
+	/**
+	 * @param name the name of an ImMath or Complex operation, such as
+	 *             "ImMath.add"
+	 */
+	public static Supplier<Object> operation(String name) {
+		Inputs inputs = new Inputs(2);
+		
+		switch (name) {
+		case "ImMath.add":
+			return () -> ImMath.add(inputs.next(), inputs.next());
+		case "ImMath.mult":
+			return () -> ImMath.mult(inputs.next(), inputs.next());
+		case "ImMath.pow(c, 2)":
+			return () -> ImMath.pow(inputs.next(), 2);
+		case "ImMath.pow(c, -2)":
+			return () -> ImMath.pow(inputs.next(), -2);
+		case "ImMath.pow(c, 2.0)":
+			return () -> ImMath.pow(inputs.next(), 2.0);
+		case "ImMath.pow(c, 5)":
+			return () -> ImMath.pow(inputs.next(), 5);
+		case "ImMath.pow(c, 2.1)":
+			return () -> ImMath.pow(inputs.next(), 2.1);
+		case "ImMath.pow(c1, c2)":
+			return () -> ImMath.pow(inputs.next(), inputs.next());
+		case "ImMath.Div":
+			return () -> ImMath.Div(inputs.next(), inputs.next());
+		case "Complex.cartesianToPolar":
+			return () -> {
+				Complex c = inputs.next();
+				Complex converted = new Complex(c.re(), c.im(), ImMath.coordinateSystem.CARTISAN);
+				converted.r();
+				converted.th();
+				return converted;
+			};
+		case "Complex.polarToCartesian":
+			return () -> {
+				Complex c = inputs.next();
+				Complex converted = new Complex(c.r(), c.th(), ImMath.coordinateSystem.POLAR);
+				converted.re();
+				converted.im();
+				return converted;
+			};
+		default:
+			throw new IllegalArgumentException("unknown operation \"" + name + "\"");
+		}
+	}
+	
+	/**
+	 * @param fractalClass the class name of a fractal in FractalGUI's list
+	 * @param primitive    whether to step through PrimitiveFractal or through
+	 *                     the Complex methods of RecursiveFractal
+	 */
+	public static Supplier<Object> step(String fractalClass, boolean primitive) {
+		RecursiveFractal fractal = findFractal(fractalClass);
+		Inputs inputs = new Inputs(fractal.getInitialScreenDiameter()/2);
+		
+		if (primitive) {
+			PrimitiveFractal kernel = PrimitiveAdapter.of(fractal);
+			double[] re = new double[1];
+			double[] im = new double[1];
+			
+			return () -> {
+				Complex c = inputs.next();
+				Complex initial = inputs.next();
+				
+				re[0] = c.re();
+				im[0] = c.im();
+				kernel.step(re, im, 0, initial.re(), initial.im());
+				return re;
+			};
+		}else {
+			return () -> fractal.step(inputs.next(), inputs.next());
+		}
+	}
+	
+	/**
+	 * Renders FRAME_ITERATIONS iterations of the starting view of a fractal,
+	 * zoomed in by 2^zooms around center, at FractalViewer2's default size or
+	 * FRACTAL_VIEWER_SIZE for FractalViewer.
+	 * 
+	 * @param viewerClass  "FractalViewer" or "FractalViewer2"
+	 * @param fractalClass the class name of a fractal in FractalGUI's list
+	 * @param parallelism  the number of threads FractalViewer uses, or 0 to
+	 *                     use every core
+	 * @param vectorized   whether FractalViewer steps several pixels at a time
+	 *                     when it can
+	 */
+	public static Supplier<Object> frame(String viewerClass, String fractalClass, double centerRe, double centerIm, int zooms, int parallelism, boolean vectorized) {
+		RecursiveFractal fractal = findFractal(fractalClass);
+		Complex center = new Complex(centerRe, centerIm, ImMath.coordinateSystem.CARTISAN);
+		double diameter = fractal.getInitialScreenDiameter()/Math.pow(2, zooms);
+		
+		AbstractFractalViewer viewer;
+		switch (viewerClass) {
+		case "FractalViewer":
+			FractalViewer fractalViewer = parallelism == 0 ? new FractalViewer() : new FractalViewer(parallelism);
+			fractalViewer.setVectorized(vectorized);
+			fractalViewer.setSize(FRACTAL_VIEWER_SIZE, FRACTAL_VIEWER_SIZE);
+			viewer = fractalViewer;
+			break;
+		case "FractalViewer2":
+			viewer = new FractalViewer2();
+			viewer.setSize(viewer.getPreferredSize());
+			break;
+		default:
+			throw new IllegalArgumentException("unknown viewer \"" + viewerClass + "\"");
+		}
+		
+		return () -> {
+			viewer.renderFrame(fractal, diameter, center, FRAME_ITERATIONS);
+			return viewer;
+		};
+	}
+	
+	private static RecursiveFractal findFractal(String fractalClass) {
+		RecursiveFractal fractal = FractalGUI.findFractal(fractalClass);
+		if (fractal == null) {
+			throw new IllegalArgumentException("unknown fractal \"" + fractalClass + "\"");
+		}
+		
+		return fractal;
+	}
+	
+	/**
+	 * A fixed, random set of complex numbers inside a circle, handed out in a
+	 * cycle.
+	 */
+	private static class Inputs {
+		private Complex[] values;
+		private int next;
+		
+		public Inputs(double radius) {
+			Random random = new Random(SEED);
+			
+			values = new Complex[INPUT_COUNT];
+			for (int i = 0; i < values.length; i++) {
+				double r = radius*Math.sqrt(random.nextDouble());
+				double th = 2*Math.PI*random.nextDouble();
+				values[i] = new Complex(r*Math.cos(th), r*Math.sin(th), ImMath.coordinateSystem.CARTISAN);
+			}
+			next = 0;
+		}
+		
+		public Complex next() {
+			Complex value = values[next];
+			next = (next + 1) & (INPUT_COUNT - 1);
+			
+			return value;
+		}
+	}
+}
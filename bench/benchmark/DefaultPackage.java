@@ -0,0 +1,33 @@
+package benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+/**
+ * Looks up workloads from the default package class Workloads, which can't be
+ * referenced directly from a named package. The lookup only happens during
+ * setup, so it isn't part of what gets measured.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+final class DefaultPackage {
+	private static final String WORKLOADS = "Workloads";
+	
+	//cannot be instantiated
+	private DefaultPackage() {}
+	
+	/**
+	 * Calls the static method Workloads.method with the given arguments.
+	 */
+	@SuppressWarnings("unchecked")
+	static Supplier<Object> workload(String method, Class<?>[] parameterTypes, Object... args) {
+		try {
+			return (Supplier<Object>) Class.forName(WORKLOADS).getMethod(method, parameterTypes).invoke(null, args);
+		}catch (InvocationTargetException e) {
+			throw new IllegalStateException("could not create workload " + method, e.getCause());
+		}catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("could not find workload " + method, e);
+		}
+	}
+}
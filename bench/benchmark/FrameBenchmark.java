@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full frame (Workloads.FRAME_ITERATIONS iterations of every pixel)
+ * in each viewer at a few fixed views.
+ * 
+ * Each view is written as viewer:fractal:center re:center im:zooms, where zooms
+ * is the number of times the view is zoomed in by 2 from the fractal's starting
+ * view. FractalViewer2 only supports fractals whose orbit doesn't depend on
+ * the starting point, so it's only measured on Julia sets.
+ * 
+ * The benchmarks are forked with the jdk.incubator.vector module, so
+ * vectorized=true measures FractalViewer's SIMD LaneStepper on the fractals it
+ * supports. It makes no difference to the other fractals or to FractalViewer2.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector"})
+public class FrameBenchmark {
+	@Param({
+		"FractalViewer:MandelbrotSet:0:0:0",
+		"FractalViewer:MandelbrotSet:-0.75:0.1:6",
+		"FractalViewer:TriangleFractal:0:0:0",
+		"FractalViewer:JuliaSet_phi:0:0:0",
+		"FractalViewer2:JuliaSet_phi:0:0:0",
+		"FractalViewer2:JuliaSet_687_312i:0:0:0",
+	})
+	public String view;
+	
+	/**
+	 * threads used by FractalViewer, 0 meaning every core
+	 */
+	@Param({"1", "0"})
+	public int parallelism;
+	
+	@Param({"true", "false"})
+	public boolean vectorized;
+	
+	private Supplier<Object> workload;
+	
+	@Setup
+	public void setup() {
+		String[] parts = view.split(":");
+		
+		workload = DefaultPackage.workload("frame",
+				new Class<?>[] {String.class, String.class, double.class, double.class, int.class, int.class, boolean.class},
+				parts[0], parts[1], Double.parseDouble(parts[2]), Double.parseDouble(parts[3]), Integer.parseInt(parts[4]), parallelism, vectorized);
+	}
+	
+	@Benchmark
+	public Object frame() {
+		return workload.get();
+	}
+}
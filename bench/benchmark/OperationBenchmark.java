@@ -0,0 +1,57 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the individual ImMath operations and Complex conversions.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class OperationBenchmark {
+	@Param({
+		"ImMath.add",
+		"ImMath.mult",
+		"ImMath.pow(c, 2)",
+		"ImMath.pow(c, -2)",
+		"ImMath.pow(c, 2.0)",
+		"ImMath.pow(c, 5)",
+		"ImMath.pow(c, 2.1)",
+		"ImMath.pow(c1, c2)",
+		"ImMath.Div",
+		"Complex.cartesianToPolar",
+		"Complex.polarToCartesian",
+	})
+	public String operation;
+	
+	private Supplier<Object> workload;
+	
+	@Setup
+	public void setup() {
+		workload = DefaultPackage.workload("operation", new Class<?>[] {String.class}, operation);
+	}
+	
+	@Benchmark
+	public Object run() {
+		return workload.get();
+	}
+}
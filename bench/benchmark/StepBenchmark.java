@@ -0,0 +1,57 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one step of each shipped fractal, through both the Complex methods
+ * and the primitive kernel.
+ * 
+ * @author Samuel Lieberman
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class StepBenchmark {
+	@Param({
+		"MandelbrotSet",
+		"TriangleFractal",
+		"JuliaSet_phi",
+		"JuliaSet_687_312i",
+		"JuliaCauliflower",
+		"JuliaSet_neg1",
+		"TestFractal",
+	})
+	public String fractal;
+	
+	@Param({"complex", "primitive"})
+	public String kernel;
+	
+	private Supplier<Object> workload;
+	
+	@Setup
+	public void setup() {
+		workload = DefaultPackage.workload("step", new Class<?>[] {String.class, boolean.class}, fractal, kernel.equals("primitive"));
+	}
+	
+	@Benchmark
+	public Object step() {
+		return workload.get();
+	}
+}